@@ -0,0 +1,88 @@
+package me.stefan923.codescanner.benchmark;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import me.stefan923.codescanner.ingest.SourceFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The fixed set of sources a benchmark runs against, read once during setup.
+ */
+final class Corpus {
+    private final Path root;
+    private final List<String> sources;
+
+    private Corpus(Path root, List<String> sources) {
+        this.root = root;
+        this.sources = sources;
+    }
+
+    static Corpus load(String directory) {
+        Path root = Path.of(directory);
+        try (Stream<Path> files = Files.walk(root)) {
+            List<String> sources = files
+                    .filter(path -> path.toString().endsWith(".java"))
+                    .sorted()
+                    .map(Corpus::read)
+                    .toList();
+            if (sources.isEmpty()) {
+                throw new IllegalArgumentException("No Java sources under " + root.toAbsolutePath());
+            }
+            return new Corpus(root, sources);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    Path root() {
+        return root;
+    }
+
+    List<String> sources() {
+        return sources;
+    }
+
+    /**
+     * Creates a parser whose symbol solver can resolve types declared in the corpus.
+     */
+    JavaParser newParser() {
+        CombinedTypeSolver typeSolver = new CombinedTypeSolver(
+                new ReflectionTypeSolver(),
+                new JavaParserTypeSolver(root)
+        );
+        return new JavaParser(new ParserConfiguration().setSymbolResolver(new JavaSymbolSolver(typeSolver)));
+    }
+
+    List<CompilationUnit> parseAll(JavaParser parser) {
+        return sources.stream().map(source -> parse(parser, source)).toList();
+    }
+
+    static CompilationUnit parse(JavaParser parser, String source) {
+        ParseResult<CompilationUnit> result = parser.parse(source);
+        if (!result.isSuccessful() || result.getResult().isEmpty()) {
+            throw new ParseProblemException(result.getProblems());
+        }
+        return result.getResult().get();
+    }
+
+    private static String read(Path path) {
+        try {
+            return SourceFile.read(path).getContent();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package me.stefan923.codescanner.benchmark;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import me.stefan923.codescanner.detector.*;
+import me.stefan923.codescanner.resolution.CallResolver;
+import me.stefan923.codescanner.taint.TaintEnvironment;
+import me.stefan923.codescanner.taint.TaintFlow;
+import me.stefan923.codescanner.visitor.MethodTaintAnalyzer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * together with the taint state at that node, the way the detection visitors do.
+ * together with the taint map of the enclosing method, the way the detection visitors do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectorBenchmark {
+    @Param("src/test/java")
+    public String corpus;
+
+    @Param({"SQLi", "XSS", "BufferOverflow", "CSRF", "IntegerOverflow", "IntegerUnderflow"})
+    public String detector;
+
+    private FindingDetector target;
+    private List<Node> nodes;
+    private List<TaintEnvironment> states;
+
+    @Setup
+    public void setUp() {
+        Corpus sources = Corpus.load(corpus);
+        target = switch (detector) {
+            case "SQLi" -> new SQLiDetector(CallResolver.standalone());
+            case "XSS" -> new XSSDetector();
+            case "BufferOverflow" -> new BufferOverflowDetector();
+            case "CSRF" -> new CSRFDetector();
+            case "IntegerOverflow" -> new IntegerOverflowDetector();
+            case "IntegerUnderflow" -> new IntegerUnderflowDetector();
+            default -> throw new IllegalArgumentException("Unknown detector: " + detector);
+        };
+
+        MethodTaintAnalyzer analyzer = new MethodTaintAnalyzer();
+        nodes = new ArrayList<>();
+        states = new ArrayList<>();
+        sources.parseAll(sources.newParser()).forEach(cu -> cu.findAll(MethodDeclaration.class).forEach(md -> {
+            TaintFlow flow = analyzer.analyzeMethod(md);
+            nodes.add(md);
+            states.add(flow.exit());
+            for (Node node : md.findAll(Node.class, n -> n instanceof MethodCallExpr || n instanceof BinaryExpr)) {
+                nodes.add(node);
+                states.add(flow.at(node));
+            }
+        }));
+    }
+
+    @Benchmark
+    public void detect(Blackhole blackhole) {
+        FindingsSink sink = blackhole::consume;
+        for (int i = 0; i < nodes.size(); i++) {
+            target.detect(nodes.get(i), states.get(i), sink);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package me.stefan923.codescanner.benchmark;
+
+import com.github.javaparser.JavaParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses every corpus file without running any analysis.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+    @Param("src/test/java")
+    public String corpus;
+
+    private Corpus sources;
+    private JavaParser parser;
+
+    @Setup
+    public void setUp() {
+        sources = Corpus.load(corpus);
+        parser = new JavaParser();
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String source : sources.sources()) {
+            blackhole.consume(Corpus.parse(parser, source));
+        }
+    }
+}
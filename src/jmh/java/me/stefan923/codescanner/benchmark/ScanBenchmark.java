@@ -0,0 +1,39 @@
+package me.stefan923.codescanner.benchmark;
+
+import me.stefan923.codescanner.JavaFileScanner;
+import me.stefan923.codescanner.metrics.ScanMetrics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full {@link JavaFileScanner#scan()} of the corpus directory, including reading, parsing and all detectors.
+ * A new scanner is created per invocation, so type solver and summary caches start cold.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ScanBenchmark {
+    @Param("src/test/java")
+    public String corpus;
+
+    @Param("1")
+    public int threads;
+
+    private Corpus sources;
+
+    @Setup
+    public void setUp() {
+        sources = Corpus.load(corpus);
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        JavaFileScanner scanner = new JavaFileScanner(sources.root().toFile(), new ScanMetrics(), threads);
+        blackhole.consume(scanner.scan());
+    }
+}
@@ -0,0 +1,65 @@
+package me.stefan923.codescanner.benchmark;
+
+import me.stefan923.codescanner.JavaFileScanner;
+import me.stefan923.codescanner.corpus.CorpusGenerator;
+import me.stefan923.codescanner.corpus.CorpusSpec;
+import me.stefan923.codescanner.metrics.ScanMetrics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Full scan of a generated corpus, to see how scan time and allocation scale with corpus size and shape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SyntheticScanBenchmark {
+    @Param({"100", "1000"})
+    public int files;
+
+    @Param("4")
+    public int callChainDepth;
+
+    @Param({"0", "500"})
+    public int concatChainLength;
+
+    @Param("1")
+    public int threads;
+
+    private Path root;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        root = Files.createTempDirectory("synthetic-corpus");
+        new CorpusGenerator(new CorpusSpec()
+                .files(files)
+                .callChainDepth(callChainDepth)
+                .concatChainLength(concatChainLength))
+                .generate(root);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        JavaFileScanner scanner = new JavaFileScanner(root.toFile(), new ScanMetrics(), threads);
+        blackhole.consume(scanner.scan());
+    }
+}
@@ -0,0 +1,42 @@
+package me.stefan923.codescanner.benchmark;
+
+import com.github.javaparser.ast.body.MethodDeclaration;
+import me.stefan923.codescanner.visitor.MethodTaintAnalyzer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link MethodTaintAnalyzer#analyzeMethod} over every method of the pre-parsed corpus, with a cold
+ * analyzer cache on each invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaintAnalysisBenchmark {
+    @Param("src/test/java")
+    public String corpus;
+
+    private List<MethodDeclaration> methods;
+
+    @Setup
+    public void setUp() {
+        Corpus sources = Corpus.load(corpus);
+        methods = sources.parseAll(sources.newParser()).stream()
+                .flatMap(cu -> cu.findAll(MethodDeclaration.class).stream())
+                .toList();
+    }
+
+    @Benchmark
+    public void analyzeMethods(Blackhole blackhole) {
+        MethodTaintAnalyzer analyzer = new MethodTaintAnalyzer();
+        for (MethodDeclaration md : methods) {
+            blackhole.consume(analyzer.analyzeMethod(md));
+        }
+    }
+}
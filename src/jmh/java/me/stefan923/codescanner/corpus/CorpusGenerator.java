@@ -0,0 +1,225 @@
+package me.stefan923.codescanner.corpus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a deterministic synthetic source tree for scaling tests and benchmarks. The same
+ * {@link CorpusSpec} always produces byte-identical files.
+ * <p>
+ * Classes are spread over packages and grouped into call chains of {@link CorpusSpec#callChainDepth(int)}
+ * classes: method {@code mJ} of one class calls {@code mJ} of the next class in its chain. Chains optionally
+ * close into a cycle, and the first class of every chain is a servlet whose {@code doPost} feeds request
+ * parameters into the chain.
+ */
+public class CorpusGenerator {
+    private static final int CLASSES_PER_PACKAGE = 50;
+
+    private final CorpusSpec spec;
+
+    public CorpusGenerator(CorpusSpec spec) {
+        this.spec = spec;
+    }
+
+    /**
+     * Writes the corpus below {@code root} and returns the total number of lines generated.
+     */
+    public long generate(Path root) throws IOException {
+        long lines = 0;
+        for (int i = 0; i < spec.getFiles(); i++) {
+            String source = generateClass(i);
+            Path file = root.resolve(packageName(i).replace('.', '/')).resolve(className(i) + ".java");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source, StandardCharsets.UTF_8);
+            lines += source.lines().count();
+        }
+        return lines;
+    }
+
+    String generateClass(int index) {
+        // One random stream per class keeps files independent of generation order.
+        SplittableRandom random = new SplittableRandom(spec.getSeed() * 31 + index);
+        boolean chainHead = index % spec.getCallChainDepth() == 0;
+
+        StringBuilder out = new StringBuilder();
+        out.append("package ").append(packageName(index)).append(";\n\n");
+        out.append("import java.io.IOException;\n");
+        out.append("import java.io.Writer;\n");
+        out.append("import java.sql.SQLException;\n");
+        out.append("import java.sql.Statement;\n");
+        out.append("import java.util.Scanner;\n");
+        if (chainHead) {
+            out.append("import javax.servlet.http.HttpServlet;\n");
+            out.append("import javax.servlet.http.HttpServletRequest;\n");
+            out.append("import javax.servlet.http.HttpServletResponse;\n");
+        }
+        out.append('\n');
+        out.append("public class ").append(className(index));
+        if (chainHead) {
+            out.append(" extends HttpServlet");
+        }
+        out.append(" {\n");
+        out.append("    private Statement statement;\n");
+        out.append("    private Writer writer;\n");
+
+        if (chainHead) {
+            appendHandler(out, index, random);
+        }
+        for (int m = 0; m < spec.getMethodsPerFile(); m++) {
+            appendMethod(out, index, m, random);
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private void appendHandler(StringBuilder out, int index, SplittableRandom random) {
+        out.append("\n    @Override\n");
+        out.append("    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {\n");
+        out.append("        String input = request.getParameter(\"q\");\n");
+        out.append("        int n = Integer.parseInt(request.getParameter(\"n\"));\n");
+        for (int m = 0; m < spec.getMethodsPerFile(); m++) {
+            String argument = random.nextDouble() < spec.getSourceDensity() ? "input" : "\"constant\"";
+            out.append("        response.getWriter().println(m").append(m).append('(').append(argument).append(", n));\n");
+        }
+        out.append("    }\n");
+    }
+
+    private void appendMethod(StringBuilder out, int index, int method, SplittableRandom random) {
+        out.append("\n    public String m").append(method).append("(String input, int n) {\n");
+        out.append("        String value = input;\n");
+        out.append("        int total = n;\n");
+        Map<String, Integer> counters = new HashMap<>();
+        for (int s = 0; s < spec.getStatementsPerMethod(); s++) {
+            appendStatement(out, random, counters);
+        }
+        if (spec.getConcatChainLength() > 0) {
+            appendConcatChain(out, random);
+        }
+        appendCall(out, index, method, random);
+        out.append("        return value;\n");
+        out.append("    }\n");
+    }
+
+    private void appendStatement(StringBuilder out, SplittableRandom random, Map<String, Integer> counters) {
+        if (random.nextDouble() < spec.getSourceDensity() / 4) {
+            out.append("        value = value + new Scanner(System.in).nextLine();\n");
+            return;
+        }
+        if (random.nextDouble() < spec.getSinkDensity()) {
+            appendSink(out, random);
+            return;
+        }
+        int local = counters.merge("v", 1, Integer::sum);
+        switch (random.nextInt(5)) {
+            case 0 -> out.append("        int v").append(local).append(" = ")
+                    .append(random.nextInt(1, 100_000)).append(" * ").append(random.nextInt(1, 100_000)).append(";\n");
+            case 1 -> out.append("        String v").append(local).append(" = \"k").append(local)
+                    .append("=\" + value;\n");
+            case 2 -> out.append("        for (int v").append(local).append(" = 0; v").append(local).append(" < n; v")
+                    .append(local).append("++) {\n            total = total + v").append(local).append(";\n        }\n");
+            case 3 -> out.append("        if (total > ").append(random.nextInt(1000)).append(") {\n")
+                    .append("            value = value.trim();\n        } else {\n")
+                    .append("            value = \"safe\";\n        }\n");
+            default -> out.append("        total = total - ").append(random.nextInt(1, 1000)).append(";\n");
+        }
+    }
+
+    private void appendSink(StringBuilder out, SplittableRandom random) {
+        switch (random.nextInt(4)) {
+            case 0 -> out.append("        try {\n")
+                    .append("            statement.executeQuery(\"SELECT * FROM t WHERE c = '\" + value + \"'\");\n")
+                    .append("        } catch (SQLException e) {\n")
+                    .append("            throw new IllegalStateException(e);\n")
+                    .append("        }\n");
+            case 1 -> out.append("        try {\n")
+                    .append("            writer.write(\"<p>\" + value + \"</p>\");\n")
+                    .append("        } catch (IOException e) {\n")
+                    .append("            throw new IllegalStateException(e);\n")
+                    .append("        }\n");
+            case 2 -> out.append("        System.arraycopy(new int[8], 0, new int[4], 0, ")
+                    .append(random.nextInt(1, 9)).append(");\n");
+            default -> out.append("        System.out.println(value);\n");
+        }
+    }
+
+    private void appendConcatChain(StringBuilder out, SplittableRandom random) {
+        out.append("        String chain = \"SELECT \"");
+        for (int i = 0; i < spec.getConcatChainLength(); i++) {
+            out.append("\n                + ");
+            if (random.nextInt(4) == 0) {
+                out.append("value");
+            } else {
+                out.append("\"c").append(i).append(", \"");
+            }
+        }
+        out.append(";\n");
+        out.append("        value = chain;\n");
+    }
+
+    private void appendCall(StringBuilder out, int index, int method, SplittableRandom random) {
+        int depth = spec.getCallChainDepth();
+        int chainStart = index - index % depth;
+        int next = index + 1;
+        boolean chainEnd = index % depth == depth - 1 || next >= spec.getFiles();
+        if (chainEnd) {
+            if (depth > 1 && random.nextDouble() < spec.getRecursionRate()) {
+                next = chainStart;
+            } else {
+                return;
+            }
+        }
+        out.append("        if (n > 0) {\n");
+        out.append("            value = new ").append(packageName(next)).append('.').append(className(next))
+                .append("().m").append(method).append("(value, n - 1);\n");
+        out.append("        }\n");
+    }
+
+    private static String packageName(int index) {
+        return "generated.p" + index / CLASSES_PER_PACKAGE;
+    }
+
+    private static String className(int index) {
+        return "Gen" + index;
+    }
+
+    /**
+     * Usage: {@code CorpusGenerator <output-dir> [--seed=N] [--files=N] [--methods=N] [--statements=N]
+     * [--depth=N] [--recursion=R] [--sources=R] [--sinks=R] [--concat=N]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CorpusGenerator <output-dir> [--seed=N] [--files=N] [--methods=N] "
+                    + "[--statements=N] [--depth=N] [--recursion=R] [--sources=R] [--sinks=R] [--concat=N]");
+            return;
+        }
+        CorpusSpec spec = new CorpusSpec();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                System.err.println("Ignoring unknown argument: " + arg);
+                continue;
+            }
+            String value = arg.substring(eq + 1);
+            switch (arg.substring(2, eq)) {
+                case "seed" -> spec.seed(Long.parseLong(value));
+                case "files" -> spec.files(Integer.parseInt(value));
+                case "methods" -> spec.methodsPerFile(Integer.parseInt(value));
+                case "statements" -> spec.statementsPerMethod(Integer.parseInt(value));
+                case "depth" -> spec.callChainDepth(Integer.parseInt(value));
+                case "recursion" -> spec.recursionRate(Double.parseDouble(value));
+                case "sources" -> spec.sourceDensity(Double.parseDouble(value));
+                case "sinks" -> spec.sinkDensity(Double.parseDouble(value));
+                case "concat" -> spec.concatChainLength(Integer.parseInt(value));
+                default -> System.err.println("Ignoring unknown option: " + arg);
+            }
+        }
+        long lines = new CorpusGenerator(spec).generate(Path.of(args[0]));
+        System.out.println("Generated " + spec.getFiles() + " files, " + lines + " lines of code in " + args[0]);
+    }
+}
@@ -0,0 +1,88 @@
+package me.stefan923.codescanner.corpus;
+
+/**
+ * Shape of a synthetic corpus produced by {@link CorpusGenerator}. Densities and rates are probabilities in [0, 1].
+ */
+public class CorpusSpec {
+    private long seed = 42;
+    private int files = 100;
+    private int methodsPerFile = 5;
+    private int statementsPerMethod = 20;
+    private int callChainDepth = 4;
+    private double recursionRate = 0.1;
+    private double sourceDensity = 0.3;
+    private double sinkDensity = 0.1;
+    private int concatChainLength = 0;
+
+    public CorpusSpec seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public CorpusSpec files(int files) {
+        this.files = requirePositive(files, "files");
+        return this;
+    }
+
+    public CorpusSpec methodsPerFile(int methodsPerFile) {
+        this.methodsPerFile = requirePositive(methodsPerFile, "methodsPerFile");
+        return this;
+    }
+
+    public CorpusSpec statementsPerMethod(int statementsPerMethod) {
+        this.statementsPerMethod = Math.max(0, statementsPerMethod);
+        return this;
+    }
+
+    /** Number of classes per call chain; 1 disables cross-class calls. */
+    public CorpusSpec callChainDepth(int callChainDepth) {
+        this.callChainDepth = requirePositive(callChainDepth, "callChainDepth");
+        return this;
+    }
+
+    /** Probability that the last class of a chain calls back into the first one. */
+    public CorpusSpec recursionRate(double recursionRate) {
+        this.recursionRate = requireProbability(recursionRate, "recursionRate");
+        return this;
+    }
+
+    public CorpusSpec sourceDensity(double sourceDensity) {
+        this.sourceDensity = requireProbability(sourceDensity, "sourceDensity");
+        return this;
+    }
+
+    public CorpusSpec sinkDensity(double sinkDensity) {
+        this.sinkDensity = requireProbability(sinkDensity, "sinkDensity");
+        return this;
+    }
+
+    /** Operands in one left-deep string concatenation per method; 0 disables it. */
+    public CorpusSpec concatChainLength(int concatChainLength) {
+        this.concatChainLength = Math.max(0, concatChainLength);
+        return this;
+    }
+
+    public long getSeed() { return seed; }
+    public int getFiles() { return files; }
+    public int getMethodsPerFile() { return methodsPerFile; }
+    public int getStatementsPerMethod() { return statementsPerMethod; }
+    public int getCallChainDepth() { return callChainDepth; }
+    public double getRecursionRate() { return recursionRate; }
+    public double getSourceDensity() { return sourceDensity; }
+    public double getSinkDensity() { return sinkDensity; }
+    public int getConcatChainLength() { return concatChainLength; }
+
+    private static int requirePositive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be at least 1: " + value);
+        }
+        return value;
+    }
+
+    private static double requireProbability(double value, String name) {
+        if (value < 0 || value > 1) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1: " + value);
+        }
+        return value;
+    }
+}
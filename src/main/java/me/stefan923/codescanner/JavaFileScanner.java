@@ -1,68 +1,772 @@
 package me.stefan923.codescanner;
 
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.cache.InMemoryCache;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import me.stefan923.codescanner.cache.BoundedCache;
+import me.stefan923.codescanner.cache.MemoryBudget;
+import me.stefan923.codescanner.cache.ScanCache;
+import me.stefan923.codescanner.cache.SourceDirectoryCache;
+import me.stefan923.codescanner.callgraph.CallGraph;
+import me.stefan923.codescanner.callgraph.FileCalls;
+import me.stefan923.codescanner.ingest.SourceFile;
 import me.stefan923.codescanner.metrics.ScanMetrics;
+import me.stefan923.codescanner.metrics.ScanMetrics.Phase;
+import me.stefan923.codescanner.prefilter.SourcePreFilter;
+import me.stefan923.codescanner.resolution.ResolutionCache;
+import me.stefan923.codescanner.taint.MethodSummaries;
+import me.stefan923.codescanner.taint.MethodSummaries.MethodKey;
+import me.stefan923.codescanner.visitor.DetectorSet;
+import me.stefan923.codescanner.visitor.MethodTaintAnalyzer;
 import me.stefan923.codescanner.visitor.VulnerabilityVisitor;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
-public class JavaFileScanner {
+public class JavaFileScanner implements AutoCloseable {
     private final File sourceDir;
     private final ScanMetrics metrics;
+    private final int threads;
+    private MethodTaintAnalyzer methodTaintAnalyzer;
+    private MemoryBudget memoryBudget;
+    // Sources in the largest directory of the tree, under a memory budget
+    private volatile int largestPackage;
+    private ScanCache cache;
+    // Content hashes of the files read so far in the current scan, for checking cache entries, the call index
+    // of each file indexed, to be stored with its findings, and whether the cached indexes may be used
+    private final Map<Path, String> contentHashes = new ConcurrentHashMap<>();
+    private final Map<Path, FileCalls> indexedCalls = new ConcurrentHashMap<>();
+    private volatile boolean cachedCallsUsable;
+    private SourcePreFilter preFilter;
+    private Set<Path> scope;
+    private Predicate<Vulnerability> findingFilter;
+    private volatile CallGraph callGraph;
+    // Files ruled out by the pre-filter, with their line counts
+    private final Map<File, Integer> skippedFiles = new ConcurrentHashMap<>();
+    // Incremental mode: each file's modification time, call index and findings as of the last scan
+    private boolean incremental;
+    private final Map<File, FileState> fileStates = new ConcurrentHashMap<>();
+    // Bumped whenever the tree changes; workers then evict what they hold of the sources invalidated since
+    // their own generation, listed per generation in staleSources. Generations every worker has evicted are
+    // dropped; workers are tracked weakly, as those of finished non-incremental scans go away with their threads.
+    private volatile int sourceGeneration;
+    private final ConcurrentNavigableMap<Integer, StaleSources> staleSources = new ConcurrentSkipListMap<>();
+    private final Set<Worker> createdWorkers =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    // Declarations of the files changed since the last scan, and the files calling into them
+    private final Map<File, Set<String>> previousDeclarations = new HashMap<>();
+    private final Set<File> staleCallers = new HashSet<>();
+    private ExecutorService pool;
+
+    // Each worker thread gets its own parser, symbol solver and resolution cache; the type solvers cache
+    // parsed dependencies internally and are not safe to share between threads.
+    private final ThreadLocal<Worker> workers = new ThreadLocal<>();
+    // Type lookups cached per parsed source under a memory budget
+    private static final int TYPES_PER_UNIT = 4;
 
     public JavaFileScanner(File sourceDir, ScanMetrics metrics) {
+        this(sourceDir, metrics, 1);
+    }
+
+    public JavaFileScanner(File sourceDir, ScanMetrics metrics, int threads) {
         this.sourceDir = sourceDir;
         this.metrics = metrics;
-        configureParser();
+        this.threads = Math.max(1, threads);
+        this.methodTaintAnalyzer = new MethodTaintAnalyzer(MethodTaintAnalyzer.DEFAULT_MAXIMUM_SIZE, metrics);
+    }
+
+    /**
+     * Enables the incremental cache: files that are unchanged since they were cached, along with the files of
+     * the methods they reach through calls, are not parsed again.
+     */
+    public void setCache(ScanCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Enables the lexical pre-filter: files that cannot produce a finding, and do not call into a file that
+     * can, are neither parsed nor analyzed.
+     */
+    public void setPreFilter(SourcePreFilter preFilter) {
+        this.preFilter = preFilter;
+    }
+
+    /**
+     * Restricts scans to {@code changedFiles}, the files directly calling a method declared in them and the
+     * project files declaring the methods they call. No call graph is built; every other file is only parsed
+     * if the symbol solver needs it to resolve a call. Taint reaching the changed code from further up the call
+     * chain than a direct caller is only seen by a full scan. The pre-filter, the scan cache and incremental
+     * mode do not apply to scoped scans.
+     */
+    public void setScope(Collection<Path> changedFiles) {
+        this.scope = new HashSet<>();
+        changedFiles.forEach(file -> scope.add(file.toAbsolutePath().normalize()));
+    }
+
+    /**
+     * Drops findings rejected by {@code filter} before they are handed over or counted.
+     */
+    public void setFindingFilter(Predicate<Vulnerability> findingFilter) {
+        this.findingFilter = findingFilter;
+    }
+
+    /**
+     * Bounds what the scanner caches by {@code memoryBudget}: the type solvers' caches, the loaded callee
+     * sources, the taint flows and the method summaries are limited in size, least recently used entries going
+     * first. All but the summaries, which hold only findings, can also be reclaimed by the garbage collector
+     * when the heap runs low. The type solvers keep at least the largest package parsed, since they search all
+     * of it for names that have no source file of their own. The scanned files' ASTs are not retained once their
+     * findings are handed over. Set before the first scan.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        this.methodTaintAnalyzer = new MethodTaintAnalyzer(memoryBudget.taintFlows(), true, metrics);
+    }
+
+    /**
+     * Enables incremental mode for scanner instances that are reused across scans: worker threads, type solvers
+     * and the taint cache stay warm, and files whose modification time and size are unchanged keep their call
+     * index and findings. A changed file is analyzed again together with every file that calls into it.
+     * Call {@link #close()} when done.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
     }
 
     public List<Vulnerability> scan() {
+        List<Vulnerability> vulnerabilities = new ArrayList<>();
+        scan(vulnerabilities::addAll);
+        return vulnerabilities;
+    }
+
+    /**
+     * Scans the source tree and hands each file's findings to {@code onFileScanned} as soon as they are available.
+     * Files are reported in the same order for sequential and parallel scans, and no findings are retained
+     * by the scanner after they have been handed over. A finding is handed over only with the first file that
+     * reports it; only its fingerprint is kept to recognize it later.
+     * <p>
+     * A pre-pass first indexes every file into a project-wide {@link CallGraph}; the scan itself then looks
+     * up call targets in the graph instead of resolving them again. With the scan cache, unchanged files are
+     * indexed from the cache and, if their callee files are unchanged as well, not read again by the scan.
+     */
+    public void scan(Consumer<List<Vulnerability>> onFileScanned) {
         List<File> javaFiles = new ArrayList<>();
         collectJavaFiles(sourceDir, javaFiles);
+        if (memoryBudget != null) {
+            largestPackage = largestPackage(javaFiles);
+        }
+        if (incremental && scope == null) {
+            refreshFileStates(javaFiles);
+        }
 
-        List<Vulnerability> vulnerabilities = new ArrayList<>();
+        contentHashes.clear();
+        indexedCalls.clear();
+        if (cache != null && scope == null) {
+            List<String> paths = new ArrayList<>(javaFiles.size());
+            javaFiles.forEach(file -> paths.add(cacheKey(file.toPath())));
+            cachedCallsUsable = cache.updateFiles(paths);
+        }
+        Set<String> reported = new HashSet<>();
+        Consumer<List<Vulnerability>> deliver = fileVulnerabilities -> {
+            long start = System.nanoTime();
+            onFileScanned.accept(firstReported(fileVulnerabilities, reported));
+            metrics.addPhaseTime(Phase.OUTPUT, System.nanoTime() - start);
+        };
+        ExecutorService executor = executor();
+        try {
+            if (scope != null) {
+                javaFiles = scopedFiles(javaFiles, executor);
+                skippedFiles.clear();
+                callGraph = null;
+            } else {
+                callGraph = buildCallGraph(javaFiles, executor);
+                if (incremental && declarationsChanged()) {
+                    // Calls into the changed files may resolve differently now, so their callers are indexed
+                    // again.
+                    staleCallers.forEach(file -> fileStates.get(file).calls = null);
+                    callGraph = buildCallGraph(javaFiles, executor);
+                }
+            }
+
+            if (executor == null) {
+                for (File file : javaFiles) {
+                    deliver.accept(scanFile(file));
+                }
+                return;
+            }
+
+            Deque<Future<List<Vulnerability>>> results = new ArrayDeque<>(javaFiles.size());
+            for (File file : javaFiles) {
+                results.add(executor.submit(() -> scanFile(file)));
+            }
+            // Consume in submission order so the findings match a sequential run.
+            while (!results.isEmpty()) {
+                deliver.accept(await(results.poll()));
+            }
+        } finally {
+            if (executor != null && executor != pool) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private ExecutorService executor() {
+        if (threads == 1) {
+            return null;
+        }
+        if (!incremental) {
+            return Executors.newFixedThreadPool(threads);
+        }
+        if (pool == null) {
+            // Kept between scans so the workers' thread-local parsers stay warm; daemon threads let the JVM
+            // exit without an explicit close().
+            pool = Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "scanner-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * Compares the tree against the last scan. Changed, new and deleted files lose their stored index and
+     * findings. The files calling into them according to the last scan's call graph lose their findings, and
+     * keep their index unless the changed files' declarations turn out to differ.
+     */
+    private void refreshFileStates(List<File> javaFiles) {
+        Map<File, FileState> next = new HashMap<>();
+        Set<Path> changed = new HashSet<>();
+        previousDeclarations.clear();
+        staleCallers.clear();
         for (File file : javaFiles) {
-            metrics.incrementFilesScanned();
-            metrics.addLines(countLines(file));
+            FileState state = fileStates.get(file);
+            if (state == null || !state.matches(file)) {
+                if (state != null && state.calls != null) {
+                    previousDeclarations.put(file, state.calls.signatures());
+                }
+                state = new FileState(file);
+                changed.add(file.toPath());
+            }
+            next.put(file, state);
+        }
+        for (Map.Entry<File, FileState> entry : fileStates.entrySet()) {
+            if (!next.containsKey(entry.getKey())) {
+                changed.add(entry.getKey().toPath());
+                FileCalls calls = entry.getValue().calls;
+                previousDeclarations.put(entry.getKey(), calls != null ? calls.signatures() : Set.of());
+            }
+        }
+        if (!changed.isEmpty()) {
+            Set<MethodKey> staleMethods = new HashSet<>();
+            methodTaintAnalyzer.invalidate(changed);
+            if (callGraph != null) {
+                BitSet callers = callGraph.callers(changed);
+                for (int method = callers.nextSetBit(0); method >= 0; method = callers.nextSetBit(method + 1)) {
+                    Path caller = callGraph.declaringFile(method);
+                    staleMethods.add(new MethodKey(caller, callGraph.declarationPosition(method)));
+                    FileState state = next.get(caller.toFile());
+                    if (state != null && !changed.contains(caller)) {
+                        state.findings = null;
+                        staleCallers.add(caller.toFile());
+                    }
+                }
+            }
+            staleSources.put(sourceGeneration, new StaleSources(changed, staleMethods));
+            sourceGeneration++;
+            trimStaleSources();
+        }
+        fileStates.keySet().retainAll(next.keySet());
+        fileStates.putAll(next);
+    }
 
-            try {
-                CompilationUnit cu = StaticJavaParser.parse(file);
-                int initialSize = vulnerabilities.size();
-                VulnerabilityVisitor visitor = new VulnerabilityVisitor(vulnerabilities);
-                visitor.visit(cu, null);
-                int newVulns = vulnerabilities.size() - initialSize;
-                if (newVulns > 0) {
-                    metrics.incrementFilesWithVulnerabilities();
-                    for (int i = initialSize; i < vulnerabilities.size(); i++) {
-                        metrics.recordVulnerability(vulnerabilities.get(i).getType());
+    /**
+     * Drops the generations of stale sources that every worker has already evicted.
+     */
+    private void trimStaleSources() {
+        int oldest = sourceGeneration;
+        synchronized (createdWorkers) {
+            for (Worker worker : createdWorkers) {
+                oldest = Math.min(oldest, worker.generation);
+            }
+        }
+        staleSources.headMap(oldest).clear();
+    }
+
+    private boolean declarationsChanged() {
+        for (Map.Entry<File, Set<String>> entry : previousDeclarations.entrySet()) {
+            FileState state = fileStates.get(entry.getKey());
+            Set<String> declarations = state != null && state.calls != null ? state.calls.signatures() : Set.of();
+            if (!declarations.equals(entry.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Selects the scope's files, their direct callers and the files declaring their callees, in tree order.
+     * Callers are found by indexing only the files that mention both the name of a method declared in a changed
+     * file and the simple name of a type declaring one, which a call resolving to it has to name; callees by
+     * mapping the resolved call targets to their source files.
+     */
+    private List<File> scopedFiles(List<File> javaFiles, ExecutorService executor) {
+        List<File> changedFiles = new ArrayList<>();
+        for (File file : javaFiles) {
+            if (scope.contains(file.toPath().toAbsolutePath().normalize())) {
+                changedFiles.add(file);
+            }
+        }
+        Set<File> selected = new HashSet<>(changedFiles);
+        Set<File> projectFiles = new HashSet<>(javaFiles);
+        Set<String> declared = new HashSet<>();
+        Set<String> methodNames = new HashSet<>();
+        Set<String> typeNames = new HashSet<>();
+        for (FileCalls calls : indexFiles(changedFiles, executor)) {
+            declared.addAll(calls.signatures());
+            methodNames.addAll(calls.methodNames());
+            for (String signature : calls.signatures()) {
+                String type = declaringType(signature);
+                typeNames.add(type.substring(type.lastIndexOf('.') + 1));
+            }
+            for (String target : calls.targets()) {
+                declaringFile(target, projectFiles).ifPresent(selected::add);
+            }
+        }
+
+        if (!declared.isEmpty()) {
+            SourcePreFilter callsMethod = SourcePreFilter.referencing(methodNames);
+            SourcePreFilter namesType = SourcePreFilter.referencing(typeNames);
+            List<File> candidates = new ArrayList<>();
+            for (File file : javaFiles) {
+                if (selected.contains(file)) {
+                    continue;
+                }
+                try {
+                    SourceFile source = read(file);
+                    if (namesType.accepts(source.getBytes()) && callsMethod.accepts(source.getBytes())) {
+                        candidates.add(file);
                     }
+                } catch (IOException e) {
+                    // Not a caller anyone can compile against.
+                }
+            }
+            List<Optional<FileCalls>> candidateCalls = map(candidates, this::indexFile, executor);
+            for (int i = 0; i < candidates.size(); i++) {
+                if (candidateCalls.get(i).map(calls -> !Collections.disjoint(calls.targets(), declared)).orElse(false)) {
+                    selected.add(candidates.get(i));
                 }
-            } catch (Exception e) {
-                metrics.incrementFilesWithErrors();
-                System.err.println("Error parsing file: " + file.getAbsolutePath());
-                e.printStackTrace();
             }
         }
-        return vulnerabilities;
+
+        List<File> scoped = new ArrayList<>();
+        for (File file : javaFiles) {
+            if (selected.contains(file)) {
+                scoped.add(file);
+            }
+        }
+        return scoped;
     }
 
-    private int countLines(File file) {
-        try (Scanner scanner = new Scanner(file)) {
-            int lines = 0;
-            while (scanner.hasNextLine()) {
-                scanner.nextLine();
-                lines++;
+    /**
+     * Returns the project file declaring the method with the given qualified signature, looked up by the
+     * source layout the type solver relies on; nested types are declared in the file of their outermost type.
+     */
+    private Optional<File> declaringFile(String signature, Set<File> projectFiles) {
+        String type = declaringType(signature);
+        while (!type.isEmpty()) {
+            File file = new File(sourceDir, type.replace('.', File.separatorChar) + ".java");
+            if (projectFiles.contains(file)) {
+                return Optional.of(file);
             }
-            return lines;
+            int dot = type.lastIndexOf('.');
+            type = dot < 0 ? "" : type.substring(0, dot);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the qualified name of the type declaring the method with the given signature, including the
+     * positional keys given to methods whose signature could not be resolved.
+     */
+    private static String declaringType(String signature) {
+        int end = signature.indexOf('(');
+        if (end < 0) {
+            end = signature.indexOf('@');
+        }
+        int member = signature.lastIndexOf('.', end < 0 ? signature.length() : end);
+        return member < 0 ? "" : signature.substring(0, member);
+    }
+
+    public CallGraph getCallGraph() {
+        return callGraph;
+    }
+
+    private CallGraph buildCallGraph(List<File> javaFiles, ExecutorService executor) {
+        skippedFiles.clear();
+        List<FileCalls> index = preFilter == null
+                ? indexFiles(javaFiles, executor)
+                : indexRelevantFiles(javaFiles, executor);
+        long start = System.nanoTime();
+        CallGraph graph = CallGraph.build(index);
+        metrics.addPhaseTime(Phase.RESOLVE, System.nanoTime() - start);
+        metrics.recordCallGraph(graph.methodCount(), graph.edgeCount(), graph.entryPoints().length);
+        return graph;
+    }
+
+    /**
+     * Indexes the files accepted by the pre-filter, then, round by round, the files that mention a method
+     * declared in an indexed file, since a callee's findings are reported in its caller's file. Whatever is
+     * left is skipped. A file is read once per round for both the pre-filter and the index.
+     */
+    private List<FileCalls> indexRelevantFiles(List<File> javaFiles, ExecutorService executor) {
+        List<FileCalls> index = new ArrayList<>();
+        Set<String> methodNames = new HashSet<>();
+        Map<File, Integer> lineCounts = new ConcurrentHashMap<>();
+        List<File> pending = javaFiles;
+        SourcePreFilter filter = preFilter;
+        while (!pending.isEmpty()) {
+            SourcePreFilter round = filter;
+            List<Relevance> relevance = map(pending, file -> indexIfAccepted(round, file, lineCounts), executor);
+            List<FileCalls> indexed = new ArrayList<>();
+            List<File> rejected = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                Relevance file = relevance.get(i);
+                if (!file.accepted()) {
+                    rejected.add(pending.get(i));
+                } else if (file.calls() != null) {
+                    indexed.add(file.calls());
+                }
+            }
+            pending = rejected;
+
+            index.addAll(indexed);
+            Set<String> newNames = new HashSet<>();
+            for (FileCalls file : indexed) {
+                for (String name : file.methodNames()) {
+                    if (methodNames.add(name)) {
+                        newNames.add(name);
+                    }
+                }
+            }
+            if (newNames.isEmpty()) {
+                break;
+            }
+            filter = SourcePreFilter.referencing(newNames);
+        }
+        for (File file : pending) {
+            skippedFiles.put(file, lineCounts.getOrDefault(file, 0));
+        }
+        return index;
+    }
+
+    private Relevance indexIfAccepted(SourcePreFilter filter, File file, Map<File, Integer> lineCounts) {
+        SourceFile source;
+        try {
+            source = read(file);
+        } catch (IOException e) {
+            // Let the scan report it.
+            return new Relevance(true, null);
+        }
+        lineCounts.put(file, source.getLineCount());
+        if (!filter.accepts(source.getBytes())) {
+            return new Relevance(false, null);
+        }
+        return new Relevance(true, indexFile(file, source).orElse(null));
+    }
+
+    /**
+     * Whether the pre-filter accepted a file, and its index if it could be built.
+     */
+    private record Relevance(boolean accepted, FileCalls calls) {
+    }
+
+    private List<FileCalls> indexFiles(List<File> files, ExecutorService executor) {
+        List<FileCalls> index = new ArrayList<>(files.size());
+        for (Optional<FileCalls> file : map(files, this::indexFile, executor)) {
+            file.ifPresent(index::add);
+        }
+        return index;
+    }
+
+    private <T> List<T> map(List<File> files, Function<File, T> task, ExecutorService executor) {
+        List<T> results = new ArrayList<>(files.size());
+        if (executor == null) {
+            for (File file : files) {
+                results.add(task.apply(file));
+            }
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(files.size());
+        for (File file : files) {
+            futures.add(executor.submit(() -> task.apply(file)));
+        }
+        for (Future<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    private Optional<FileCalls> indexFile(File file) {
+        return indexFile(file, null);
+    }
+
+    /**
+     * Indexes a file, reading it unless {@code source} is given. With the scan cache, the index stored for the
+     * file is used if it is still current, and the file is not parsed.
+     */
+    private Optional<FileCalls> indexFile(File file, SourceFile source) {
+        FileState state = incremental ? fileStates.get(file) : null;
+        if (state != null && state.calls != null) {
+            return Optional.of(state.calls);
+        }
+        try {
+            Path path = file.toPath();
+            if (cache != null && scope == null) {
+                if (source == null && !contentHashes.containsKey(path)) {
+                    source = read(file);
+                }
+                SourceFile read = source;
+                String contentHash = contentHashes.computeIfAbsent(path, key -> ScanCache.hash(read.getBytes()));
+                Optional<FileCalls> cached = cachedCallsUsable
+                        ? cache.calls(cacheKey(path), contentHash, key -> contentHash(sourceDir.toPath().resolve(key)))
+                        : Optional.empty();
+                if (cached.isPresent()) {
+                    FileCalls calls = cached.get().at(path);
+                    indexedCalls.put(path, calls);
+                    return Optional.of(calls);
+                }
+            }
+            if (source == null) {
+                source = read(file);
+            }
+            CompilationUnit cu = timedParse(source);
+            long start = System.nanoTime();
+            FileCalls calls = FileCalls.index(source.getPath(), cu, worker().resolutions.forFile());
+            metrics.addPhaseTime(Phase.RESOLVE, System.nanoTime() - start);
+            if (state != null) {
+                state.calls = calls;
+            }
+            if (cache != null && scope == null) {
+                indexedCalls.put(path, calls);
+            }
+            return Optional.of(calls);
+        } catch (Exception e) {
+            // Unreadable and unparsable files are reported by the scan itself.
+            return Optional.empty();
+        }
+    }
+
+    private List<Vulnerability> scanFile(File file) {
+        metrics.incrementFilesScanned();
+
+        List<Vulnerability> fileVulnerabilities = new ArrayList<>();
+        Integer skippedLines = skippedFiles.get(file);
+        if (skippedLines != null) {
+            metrics.incrementFilesSkipped();
+            metrics.addLines(skippedLines);
+            return fileVulnerabilities;
+        }
+
+        FileState state = incremental ? fileStates.get(file) : null;
+        if (state != null && state.findings != null) {
+            metrics.incrementFilesFromCache();
+            metrics.addLines(state.lines);
+            return state.findings;
+        }
+
+        // The pre-pass has hashed the file already, so a cache hit needs no further read.
+        String path = null;
+        String contentHash = null;
+        Map<String, String> dependencies = null;
+        if (cache != null && callGraph != null) {
+            path = cacheKey(file.toPath());
+            contentHash = contentHash(file.toPath());
+            dependencies = dependencies(file.toPath());
+            Optional<ScanCache.Entry> cached = cache.lookup(path, contentHash, dependencies);
+            if (cached.isPresent()) {
+                ScanCache.Entry entry = cached.get();
+                FileCalls calls = indexedCalls.remove(file.toPath());
+                if (calls != null) {
+                    // Keeps the entry's index as current as its findings.
+                    cache.store(path, contentHash, dependencies, calls, entry.getLines(), entry.getVulnerabilities());
+                }
+                metrics.incrementFilesFromCache();
+                metrics.addLines(entry.getLines());
+                return entry.getVulnerabilities();
+            }
+        }
+
+        long start = System.nanoTime();
+        SourceFile source;
+        try {
+            source = read(file);
+        } catch (IOException e) {
+            metrics.incrementFilesWithErrors();
+            System.err.println("Error reading file: " + file.getAbsolutePath());
+            e.printStackTrace();
+            return fileVulnerabilities;
+        }
+
+        metrics.addLines(source.getLineCount());
+
+        try {
+            CompilationUnit cu = timedParse(source);
+            Worker worker = worker().useCallGraph(callGraph, this::load);
+            VulnerabilityVisitor visitor = new VulnerabilityVisitor(fileVulnerabilities, worker.detectors,
+                    worker.summaries, methodTaintAnalyzer, metrics);
+            visitor.visit(cu, null);
+            if (contentHash != null) {
+                cache.store(path, contentHash, dependencies, indexedCalls.remove(file.toPath()),
+                        source.getLineCount(), fileVulnerabilities);
+            }
+            if (state != null) {
+                state.lines = source.getLineCount();
+                state.findings = List.copyOf(fileVulnerabilities);
+            }
+        } catch (Exception e) {
+            metrics.incrementFilesWithErrors();
+            System.err.println("Error parsing file: " + file.getAbsolutePath());
+            e.printStackTrace();
+        }
+        metrics.recordFileLatency(sourceDir.toPath().relativize(file.toPath()).toString(), System.nanoTime() - start);
+        return fileVulnerabilities;
+    }
+
+    /**
+     * Drops the findings rejected by the finding filter and those already handed over with an earlier file,
+     * such as those of a callee reported with each of its callers' files, and records the rest in the metrics.
+     */
+    private List<Vulnerability> firstReported(List<Vulnerability> fileVulnerabilities, Set<String> reported) {
+        List<Vulnerability> unique = new ArrayList<>(fileVulnerabilities.size());
+        for (Vulnerability vulnerability : fileVulnerabilities) {
+            if ((findingFilter == null || findingFilter.test(vulnerability))
+                    && reported.add(vulnerability.getFingerprint())) {
+                unique.add(vulnerability);
+            }
+        }
+        recordFindings(unique);
+        return unique;
+    }
+
+    /**
+     * Returns the content hashes of the files {@code file} reaches through calls, by cache key.
+     */
+    private Map<String, String> dependencies(Path file) {
+        Map<String, String> dependencies = new HashMap<>();
+        for (Path callee : callGraph.calleeFiles(file)) {
+            dependencies.put(cacheKey(callee), contentHash(callee));
+        }
+        return dependencies;
+    }
+
+    private String contentHash(Path file) {
+        return contentHashes.computeIfAbsent(file, key -> {
+            try {
+                return ScanCache.hash(read(key.toFile()).getBytes());
+            } catch (IOException e) {
+                // Matches no stored hash, so callers of an unreadable file are analyzed again.
+                return "";
+            }
+        });
+    }
+
+    private String cacheKey(Path file) {
+        return sourceDir.toPath().relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    private void recordFindings(List<Vulnerability> fileVulnerabilities) {
+        if (!fileVulnerabilities.isEmpty()) {
+            metrics.incrementFilesWithVulnerabilities();
+            for (Vulnerability vulnerability : fileVulnerabilities) {
+                metrics.recordVulnerability(vulnerability.getType());
+            }
+        }
+    }
+
+    private SourceFile read(File file) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return SourceFile.read(file.toPath());
+        } finally {
+            metrics.addPhaseTime(Phase.READ, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Parses a file being indexed or scanned. Callee sources loaded while detecting are parsed by
+     * {@link #load}, which counts towards detection instead.
+     */
+    private CompilationUnit timedParse(SourceFile source) {
+        long start = System.nanoTime();
+        try {
+            return parse(source);
+        } finally {
+            metrics.addPhaseTime(Phase.PARSE, System.nanoTime() - start);
+        }
+    }
+
+    private CompilationUnit parse(SourceFile source) {
+        ParseResult<CompilationUnit> result = worker().parser.parse(source.getContent());
+        if (!result.isSuccessful() || result.getResult().isEmpty()) {
+            throw new ParseProblemException(result.getProblems());
+        }
+        CompilationUnit cu = result.getResult().get();
+        cu.setStorage(source.getPath());
+        return cu;
+    }
+
+    private Optional<CompilationUnit> load(Path path) {
+        try {
+            return Optional.of(parse(SourceFile.read(path)));
         } catch (Exception e) {
-            return 0;
+            return Optional.empty();
+        }
+    }
+
+    private <T> T await(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Scan interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Scan failed", e.getCause());
         }
     }
 
@@ -76,12 +780,172 @@ public class JavaFileScanner {
         }
     }
 
-    private void configureParser() {
+    private static int largestPackage(List<File> javaFiles) {
+        Map<File, Integer> packageSizes = new HashMap<>();
+        int largest = 0;
+        for (File file : javaFiles) {
+            largest = Math.max(largest, packageSizes.merge(file.getParentFile(), 1, Integer::sum));
+        }
+        return largest;
+    }
+
+    private Worker worker() {
+        Worker worker = workers.get();
+        if (worker == null) {
+            worker = createWorker();
+            workers.set(worker);
+            createdWorkers.add(worker);
+        } else if (worker.generation != sourceGeneration) {
+            int generation = sourceGeneration;
+            worker.evict(StaleSources.union(staleSources.subMap(worker.generation, generation).values()), generation);
+        }
+        return worker;
+    }
+
+    private Worker createWorker() {
+        Cache<Path, Optional<CompilationUnit>> parsedSources;
+        Cache<Path, List<CompilationUnit>> parsedDirectories;
+        Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes;
+        int maximumUnits = ResolutionCache.UNBOUNDED;
+        MethodSummaries summaries;
+        if (memoryBudget == null) {
+            parsedSources = InMemoryCache.create();
+            parsedDirectories = InMemoryCache.create();
+            foundTypes = InMemoryCache.create();
+            summaries = new MethodSummaries();
+        } else {
+            maximumUnits = memoryBudget.unitsPerCache(threads);
+            // The type solver searches a whole package for names without a source file of their own, so a
+            // package that does not fit would be parsed again for each of them.
+            parsedSources = new BoundedCache<>(Math.max(maximumUnits, largestPackage), true);
+            parsedDirectories = new SourceDirectoryCache(parsedSources);
+            foundTypes = new BoundedCache<>(maximumUnits * TYPES_PER_UNIT, true);
+            summaries = new MethodSummaries(memoryBudget.summarizedMethods(threads));
+        }
         TypeSolver typeSolver = new CombinedTypeSolver(
                 new ReflectionTypeSolver(),
-                new JavaParserTypeSolver(sourceDir)
+                new JavaParserTypeSolver(sourceDir.toPath(),
+                        new JavaParser(new ParserConfiguration().setLanguageLevel(LanguageLevel.BLEEDING_EDGE)),
+                        parsedSources, parsedDirectories, foundTypes)
         );
         JavaSymbolSolver symbolSolver = new JavaSymbolSolver(typeSolver);
-        StaticJavaParser.getConfiguration().setSymbolResolver(symbolSolver);
+        return new Worker(new JavaParser(new ParserConfiguration().setSymbolResolver(symbolSolver)),
+                parsedSources, parsedDirectories, foundTypes, summaries, maximumUnits, incremental, sourceGeneration,
+                metrics);
+    }
+
+    private static final class FileState {
+        private final long modified;
+        private final long size;
+        private volatile FileCalls calls;
+        private volatile List<Vulnerability> findings;
+        private volatile int lines;
+
+        private FileState(File file) {
+            this.modified = file.lastModified();
+            this.size = file.length();
+        }
+
+        private boolean matches(File file) {
+            return file.lastModified() == modified && file.length() == size;
+        }
+    }
+
+    private static final class Worker {
+        private final JavaParser parser;
+        // The type solver's caches of parsed project sources
+        private final Cache<Path, Optional<CompilationUnit>> parsedSources;
+        private final Cache<Path, List<CompilationUnit>> parsedDirectories;
+        private final Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes;
+        // Parsed sources each of the worker's other caches may keep, under a memory budget
+        private final int maximumUnits;
+        private final boolean incremental;
+        private volatile int generation;
+        // Symbol-solver backed, used by the call graph pre-pass
+        private ResolutionCache resolutions;
+        // Callee sources parsed for the scan, with the summaries of their methods
+        private final BoundedCache<Path, Optional<CompilationUnit>> loaded;
+        private final MethodSummaries summaries;
+        private CallGraph callGraph;
+        private ResolutionCache graphResolutions;
+        // Built with the graph's resolutions and reused for every file until the graph changes
+        private DetectorSet detectors;
+        private final ScanMetrics metrics;
+
+        private Worker(JavaParser parser, Cache<Path, Optional<CompilationUnit>> parsedSources,
+                       Cache<Path, List<CompilationUnit>> parsedDirectories,
+                       Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes,
+                       MethodSummaries summaries, int maximumUnits, boolean incremental, int generation,
+                       ScanMetrics metrics) {
+            this.parser = parser;
+            this.parsedSources = parsedSources;
+            this.parsedDirectories = parsedDirectories;
+            this.foundTypes = foundTypes;
+            this.summaries = summaries;
+            this.maximumUnits = maximumUnits;
+            this.incremental = incremental;
+            this.generation = generation;
+            this.metrics = metrics;
+            this.resolutions = new ResolutionCache(maximumUnits);
+            this.loaded = maximumUnits == ResolutionCache.UNBOUNDED
+                    ? BoundedCache.unbounded()
+                    : new BoundedCache<>(maximumUnits, true);
+        }
+
+        /**
+         * Switches to the given scan's call graph. Outside incremental mode any source may have changed since
+         * the last graph, so loaded callees and their summaries are dropped; in incremental mode only those of
+         * stale files are, by {@link #evict}.
+         */
+        private Worker useCallGraph(CallGraph graph, Function<Path, Optional<CompilationUnit>> sources) {
+            if (graphResolutions == null || graph != callGraph) {
+                if (!incremental) {
+                    loaded.removeAll();
+                    summaries.clear();
+                }
+                callGraph = graph;
+                graphResolutions = new ResolutionCache(graph, path -> loaded.computeIfAbsent(path, sources),
+                        maximumUnits);
+                detectors = new DetectorSet(graphResolutions.forFile(), metrics);
+            }
+            return this;
+        }
+
+        /**
+         * Forgets everything parsed from the changed files and the summaries of their callers, keeping the rest
+         * of the type solver's parses, the loaded callees and their summaries warm for the next scan.
+         */
+        private void evict(StaleSources stale, int generation) {
+            stale.files().forEach(parsedSources::remove);
+            parsedDirectories.removeAll();
+            foundTypes.removeAll();
+            resolutions = new ResolutionCache(maximumUnits);
+            loaded.removeIf((path, unit) -> stale.files().contains(path));
+            summaries.invalidate(stale::contains);
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * The files that changed in one or more generations, and the methods that call into them, keyed by file
+     * and declaration position.
+     */
+    private record StaleSources(Set<Path> files, Set<MethodKey> methods) {
+        static StaleSources union(Collection<StaleSources> generations) {
+            if (generations.size() == 1) {
+                return generations.iterator().next();
+            }
+            Set<Path> files = new HashSet<>();
+            Set<MethodKey> methods = new HashSet<>();
+            for (StaleSources generation : generations) {
+                files.addAll(generation.files);
+                methods.addAll(generation.methods);
+            }
+            return new StaleSources(files, methods);
+        }
+
+        boolean contains(MethodKey method) {
+            return files.contains(method.file()) || methods.contains(method);
+        }
     }
 }
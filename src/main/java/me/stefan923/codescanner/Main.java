@@ -1,11 +1,30 @@
 package me.stefan923.codescanner;
 
+import com.google.gson.GsonBuilder;
+import me.stefan923.codescanner.cache.MemoryBudget;
+import me.stefan923.codescanner.cache.ScanCache;
+import me.stefan923.codescanner.detector.VulnerabilityDetector;
 import me.stefan923.codescanner.metrics.ScanMetrics;
 import me.stefan923.codescanner.output.ConsoleOutputStrategy;
+import me.stefan923.codescanner.output.JsonLinesOutputStrategy;
 import me.stefan923.codescanner.output.JsonOutputStrategy;
 import me.stefan923.codescanner.output.OutputStrategy;
+import me.stefan923.codescanner.output.StreamingOutputStrategy;
+import me.stefan923.codescanner.prefilter.SourcePreFilter;
+import me.stefan923.codescanner.resolution.CallResolver;
+import me.stefan923.codescanner.server.ScanServer;
+import me.stefan923.codescanner.vcs.ChangedCodeFilter;
+import me.stefan923.codescanner.vcs.GitDiff;
+import me.stefan923.codescanner.visitor.VulnerabilityVisitor;
+import me.stefan923.codescanner.watch.SourceWatcher;
+import me.stefan923.codescanner.watch.UpdatePrinter;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 
 public class Main {
@@ -14,8 +33,9 @@ public class Main {
         String sourcePath = args.length > 0 ? args[0] : "D:\\Programming\\Projects\\octane-github-actions-test\\vulnerable-app\\src\\main\\java\\me\\stefan923\\vulnerableapp";
         String action = args.length > 1 ? args[1].toLowerCase() : "benchmark";
         String outputType = args.length > 2 ? args[2].toLowerCase() : "console";
+        Map<String, String> options = parseOptions(args, 3);
 
-        if (!List.of("benchmark", "suggest-fixes").contains(action)) {
+        if (!List.of("benchmark", "suggest-fixes", "serve", "watch").contains(action)) {
             System.err.println("Invalid action: " + action);
             return;
         }
@@ -26,17 +46,117 @@ public class Main {
             return;
         }
 
+        int threads;
+        try {
+            threads = Integer.parseInt(options.getOrDefault("threads", "1"));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid thread count: " + options.get("threads"));
+            return;
+        }
+
+        OutputStrategy output = createOutputStrategy(outputType);
+        StreamingOutputStrategy streamingOutput = createStreamingOutputStrategy(outputType);
+        if (output == null && streamingOutput == null) {
+            System.err.println("Invalid output type: " + outputType);
+            return;
+        }
+
+        String changedOnly = options.get("changed-only");
+        if (changedOnly != null && !List.of("lines", "methods").contains(changedOnly)) {
+            System.err.println("Invalid changed-only granularity: " + changedOnly);
+            return;
+        }
+
+        MemoryBudget memoryBudget = null;
+        if (options.containsKey("memory-budget")) {
+            try {
+                memoryBudget = MemoryBudget.ofMegabytes(Long.parseLong(options.get("memory-budget")));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid memory budget (MB): " + options.get("memory-budget"));
+                return;
+            }
+        }
+
+        SourcePreFilter preFilter = options.containsKey("prefilter") ? createPreFilter() : null;
+        if (action.equals("serve") || action.equals("watch")) {
+            // Long-running modes keep their incremental state in memory, and a diff base goes stale with the
+            // first edit.
+            for (String option : List.of("cache", "diff-base", "changed-only")) {
+                if (options.containsKey(option)) {
+                    System.err.println("Option --" + option + " is not supported by " + action);
+                    return;
+                }
+            }
+        }
+        if (action.equals("serve")) {
+            serve(sourceDir, outputType, threads, memoryBudget, preFilter, options);
+            return;
+        }
+        if (action.equals("watch")) {
+            watch(sourceDir, outputType, threads, memoryBudget, preFilter, options);
+            return;
+        }
+
         ScanMetrics metrics = new ScanMetrics();
         metrics.start();
 
-        JavaFileScanner scanner = new JavaFileScanner(sourceDir, metrics);
-        List<Vulnerability> vulnerabilities = scanner.scan();
+        JavaFileScanner scanner = new JavaFileScanner(sourceDir, metrics, threads);
+        ScanCache cache = options.containsKey("cache") ? ScanCache.load(Path.of(options.get("cache"))) : null;
+        scanner.setCache(cache);
+        if (memoryBudget != null) {
+            scanner.setMemoryBudget(memoryBudget);
+        }
+        scanner.setPreFilter(preFilter);
+        if (options.containsKey("diff-base")) {
+            GitDiff diff;
+            try {
+                diff = GitDiff.against(sourceDir, options.get("diff-base"));
+            } catch (IOException e) {
+                System.err.println("Could not diff against " + options.get("diff-base") + ": " + e.getMessage());
+                return;
+            }
+            scanner.setScope(diff.files());
+            if (changedOnly != null) {
+                scanner.setFindingFilter(changedOnly.equals("lines")
+                        ? ChangedCodeFilter.lines(diff)
+                        : ChangedCodeFilter.methods(diff));
+            }
+        }
+
+        List<Vulnerability> vulnerabilities = null;
+        if (streamingOutput != null) {
+            streamingOutput.open();
+            scanner.scan(fileVulnerabilities -> {
+                fileVulnerabilities.forEach(streamingOutput::emit);
+                streamingOutput.flush();
+            });
+            streamingOutput.close();
+        } else {
+            vulnerabilities = scanner.scan();
+        }
+
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.err.println("Could not write scan cache: " + e.getMessage());
+            }
+        }
 
         metrics.end();
 
-        OutputStrategy output = createOutputStrategy(outputType);
-        if (output == null) {
-            System.err.println("Invalid output type: " + outputType);
+        if (options.containsKey("metrics-json")) {
+            try {
+                Files.writeString(Path.of(options.get("metrics-json")),
+                        new GsonBuilder().setPrettyPrinting().create().toJson(metrics.toJson()));
+            } catch (IOException e) {
+                System.err.println("Could not write scan metrics: " + e.getMessage());
+            }
+        }
+
+        if (streamingOutput != null) {
+            // Keep stdout machine-readable when findings are streamed.
+            metrics.printSummary(System.err);
             return;
         }
 
@@ -44,6 +164,99 @@ public class Main {
         output.print(vulnerabilities);
     }
 
+    /**
+     * Runs the scanner as a daemon answering scan requests on the loopback interface until the JVM is stopped.
+     * {@code sourceDir} is scanned once up front and is the default root of requests.
+     */
+    private static void serve(File sourceDir, String outputType, int threads, MemoryBudget memoryBudget,
+                              SourcePreFilter preFilter, Map<String, String> options) {
+        int port;
+        try {
+            port = Integer.parseInt(options.getOrDefault("port", "8765"));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid port: " + options.get("port"));
+            return;
+        }
+        ScanServer server = new ScanServer(sourceDir, outputType, threads);
+        server.setMemoryBudget(memoryBudget);
+        server.setPreFilter(preFilter);
+        server.warmUp(sourceDir);
+        try {
+            InetSocketAddress address = server.start(port);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            System.err.println("Scanner listening on http://" + address.getHostString() + ":" + address.getPort()
+                    + "/scan");
+        } catch (IOException e) {
+            System.err.println("Could not start scan server: " + e.getMessage());
+            server.close();
+        }
+    }
+
+    /**
+     * Watches {@code sourceDir} and prints how its findings change after every edit until the JVM is stopped.
+     */
+    private static void watch(File sourceDir, String outputType, int threads, MemoryBudget memoryBudget,
+                              SourcePreFilter preFilter, Map<String, String> options) {
+        Duration debounce;
+        try {
+            debounce = options.containsKey("debounce")
+                    ? Duration.ofMillis(Long.parseLong(options.get("debounce")))
+                    : SourceWatcher.DEFAULT_DEBOUNCE;
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid debounce: " + options.get("debounce"));
+            return;
+        }
+        UpdatePrinter printer = switch (outputType) {
+            case "console" -> UpdatePrinter.console(System.out);
+            case "jsonl" -> UpdatePrinter.jsonLines(System.out);
+            default -> null;
+        };
+        if (printer == null) {
+            System.err.println("Invalid output type for watch: " + outputType);
+            return;
+        }
+        try (SourceWatcher watcher = new SourceWatcher(sourceDir, threads, debounce, printer)) {
+            if (memoryBudget != null) {
+                watcher.setMemoryBudget(memoryBudget);
+            }
+            watcher.setPreFilter(preFilter);
+            watcher.run();
+        } catch (IOException e) {
+            System.err.println("Could not watch " + sourceDir + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the pre-filter matching the sinks and declarations of every detector the scan runs.
+     */
+    private static SourcePreFilter createPreFilter() {
+        List<VulnerabilityDetector> detectors = new ArrayList<>(
+                VulnerabilityVisitor.createDetectors(CallResolver.standalone()));
+        detectors.addAll(VulnerabilityVisitor.createDeclarationDetectors());
+        return SourcePreFilter.of(detectors);
+    }
+
+    /**
+     * Parses trailing {@code --name=value} options. A bare {@code --name} is stored as {@code "true"}.
+     */
+    private static Map<String, String> parseOptions(String[] args, int from) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = from; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                System.err.println("Ignoring unknown argument: " + arg);
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
     private static OutputStrategy createOutputStrategy(String type) {
         return switch (type) {
             case "console" -> new ConsoleOutputStrategy();
@@ -51,4 +264,11 @@ public class Main {
             default -> null;
         };
     }
+
+    private static StreamingOutputStrategy createStreamingOutputStrategy(String type) {
+        return switch (type) {
+            case "jsonl" -> new JsonLinesOutputStrategy();
+            default -> null;
+        };
+    }
 }
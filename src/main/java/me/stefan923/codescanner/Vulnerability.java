@@ -1,22 +1,81 @@
 package me.stefan923.codescanner;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+
 public class Vulnerability {
     private final String type;
     private final String description;
     private final String className;
     private final int line;
+    // Source file relative to its source root, if known. Serialized with the finding, so the JSON formats and
+    // the scan cache can tell findings in equally named classes apart.
+    private final String file;
+    // Derived from the fields above and computed on first use; not serialized
+    private transient String fingerprint;
 
     public Vulnerability(String type, String description, String className, int line) {
+        this(type, description, className, line, null);
+    }
+
+    public Vulnerability(String type, String description, String className, int line, String file) {
         this.type = type;
         this.description = description;
         this.className = className;
         this.line = line;
+        this.file = file;
     }
 
     public String getType() { return type; }
     public String getDescription() { return description; }
     public String getClassName() { return className; }
     public int getLine() { return line; }
+    public String getFile() { return file; }
+
+    /**
+     * Stable identifier of the finding: a hash of its type, file, class, line and description, which names the
+     * sink. Equal findings from different detector passes or call sites share it, and it does not change between
+     * scans of unchanged code.
+     */
+    public String getFingerprint() {
+        if (fingerprint == null) {
+            fingerprint = fingerprint(type, file, className, line, description);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns this finding attributed to {@code file}, unless it already names a file.
+     */
+    public Vulnerability inFile(String file) {
+        return this.file != null || file == null ? this : new Vulnerability(type, description, className, line, file);
+    }
+
+    private static String fingerprint(String type, String file, String className, int line, String description) {
+        String key = type + '\0' + file + '\0' + className + '\0' + line + '\0' + description;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Vulnerability that)) return false;
+        return line == that.line && type.equals(that.type) && Objects.equals(description, that.description)
+                && Objects.equals(className, that.className) && Objects.equals(file, that.file);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, description, className, line, file);
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,127 @@
+package me.stefan923.codescanner.cache;
+
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.cache.CacheStats;
+import com.github.javaparser.symbolsolver.cache.DefaultCacheStats;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Cache holding at most {@code maximumSize} entries and evicting the least recently used one beyond that. It
+ * implements JavaParser's {@link Cache}, so it can also back the symbol solver's caches. With soft values, the
+ * garbage collector may additionally clear entries when the heap runs low; a cleared entry reads as a miss.
+ * <p>
+ * Values must not be {@code null}. All methods are synchronized.
+ */
+public final class BoundedCache<K, V> implements Cache<K, V> {
+    private final boolean softValues;
+    private final Map<K, Object> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public BoundedCache(int maximumSize, boolean softValues) {
+        this.softValues = softValues;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Object> eldest) {
+                if (size() > maximumSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache without a size bound and with strongly held values, which behaves like a plain map.
+     */
+    public static <K, V> BoundedCache<K, V> unbounded() {
+        return new BoundedCache<>(Integer.MAX_VALUE, false);
+    }
+
+    @Override
+    public synchronized void put(K key, V value) {
+        entries.put(key, softValues ? new SoftReference<>(value) : value);
+    }
+
+    @Override
+    public synchronized Optional<V> get(K key) {
+        V value = unwrap(entries.get(key));
+        if (value == null) {
+            entries.remove(key);
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(value);
+    }
+
+    /**
+     * Returns the cached value, computing and caching it on a miss. {@code mapping} runs without holding the
+     * cache's lock and must not return {@code null}.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mapping) {
+        Optional<V> cached = get(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        V value = mapping.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes the entries matching {@code filter}, along with any the garbage collector cleared.
+     */
+    public synchronized void removeIf(BiPredicate<? super K, ? super V> filter) {
+        entries.entrySet().removeIf(entry -> {
+            V value = unwrap(entry.getValue());
+            return value == null || filter.test(entry.getKey(), value);
+        });
+    }
+
+    @Override
+    public synchronized void removeAll() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized boolean contains(K key) {
+        return unwrap(entries.get(key)) != null;
+    }
+
+    @Override
+    public synchronized long size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    @Override
+    public synchronized CacheStats stats() {
+        return new DefaultCacheStats(hits, misses, 0, 0, 0, evictions);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V unwrap(Object entry) {
+        if (entry instanceof SoftReference<?> reference) {
+            return (V) reference.get();
+        }
+        return (V) entry;
+    }
+}
@@ -0,0 +1,56 @@
+package me.stefan923.codescanner.cache;
+
+/**
+ * Heap a scan may use for caching, turned into bounds for the scanner's caches. Parsed sources dominate the
+ * footprint, so the bounds are derived from an estimate of what one parsed and resolved source file retains.
+ * Half of the budget goes to the workers' parsed sources, a quarter to cached taint flows, an eighth to method
+ * summaries and the rest is left to the files being analyzed. Cached taint flows only hold bitsets, so they are
+ * sized like summaries rather than like parsed sources.
+ */
+public final class MemoryBudget {
+    // Retained size of a few hundred lines parsed with their tokens and resolved symbols
+    static final long BYTES_PER_UNIT = 1024 * 1024;
+    static final long BYTES_PER_SUMMARY = 4 * 1024;
+    // A method's solved taint states, one pair of bitsets per control-flow graph node
+    static final long BYTES_PER_TAINT_FLOW = 4 * 1024;
+    static final int MINIMUM_UNITS = 8;
+
+    private final long bytes;
+
+    private MemoryBudget(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public static MemoryBudget ofMegabytes(long megabytes) {
+        if (megabytes <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive: " + megabytes);
+        }
+        return new MemoryBudget(megabytes * 1024 * 1024);
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns how many parsed sources each of {@code threads} workers may keep in each of its two source
+     * caches, the type solver's and the callee sources'.
+     */
+    public int unitsPerCache(int threads) {
+        return (int) Math.max(MINIMUM_UNITS, bytes / 2 / BYTES_PER_UNIT / threads / 2);
+    }
+
+    /**
+     * Returns how many solved taint flows the scan may cache.
+     */
+    public int taintFlows() {
+        return (int) Math.max(MINIMUM_UNITS, bytes / 4 / BYTES_PER_TAINT_FLOW);
+    }
+
+    /**
+     * Returns how many methods each of {@code threads} workers may keep findings summaries for.
+     */
+    public int summarizedMethods(int threads) {
+        return (int) Math.max(MINIMUM_UNITS, bytes / 8 / BYTES_PER_SUMMARY / threads);
+    }
+}
@@ -0,0 +1,174 @@
+package me.stefan923.codescanner.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import me.stefan923.codescanner.Vulnerability;
+import me.stefan923.codescanner.callgraph.FileCalls;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * On-disk cache mapping a file's path, relative to the source root, to the findings and line count of its last
+ * scan. Findings that come from following calls into other files are reported with the calling file, so an
+ * entry records the content hash of the file and of every file declaring a method it reaches through calls,
+ * and is only used while all of them are unchanged. The file's call index is kept with its findings, so the
+ * call graph pre-pass need not parse unchanged files either. The whole cache is discarded when the scanner or
+ * rule version changes.
+ */
+public class ScanCache {
+    public static final String SCANNER_VERSION = "1.0";
+    /** Bump whenever a detector or the taint tracking changes what it reports. */
+    public static final int RULES_VERSION = 3;
+
+    private final Path file;
+    private final Map<String, Entry> entries;
+    private final Set<String> used = ConcurrentHashMap.newKeySet();
+    // The source files of the cached scan, and of the current one
+    private final Set<String> cachedFiles;
+    private volatile Set<String> files;
+
+    private ScanCache(Path file, Map<String, Entry> entries, Collection<String> files) {
+        this.file = file;
+        this.entries = new ConcurrentHashMap<>(entries);
+        this.cachedFiles = files != null ? Set.copyOf(files) : null;
+    }
+
+    public static ScanCache load(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return new ScanCache(file, Map.of(), null);
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Snapshot snapshot = new Gson().fromJson(reader, Snapshot.class);
+            if (snapshot == null || snapshot.entries == null
+                    || !SCANNER_VERSION.equals(snapshot.scannerVersion)
+                    || snapshot.rulesVersion != RULES_VERSION) {
+                return new ScanCache(file, Map.of(), null);
+            }
+            return new ScanCache(file, snapshot.entries, snapshot.files);
+        } catch (IOException | JsonParseException e) {
+            System.err.println("Ignoring unreadable scan cache: " + file + " (" + e.getMessage() + ")");
+            return new ScanCache(file, Map.of(), null);
+        }
+    }
+
+    /**
+     * Records the source files of the tree being scanned and returns whether they are the same as in the cached
+     * scan. Calls may resolve differently in a tree that gained or lost files, so cached call indexes are not
+     * to be used otherwise.
+     */
+    public boolean updateFiles(Collection<String> paths) {
+        files = Set.copyOf(paths);
+        return files.equals(cachedFiles);
+    }
+
+    /**
+     * Returns the call index stored for {@code path} if the file and its callee files are unchanged, judged by
+     * {@code contentHashes}, which maps a path to the current content hash of that file.
+     */
+    public Optional<FileCalls> calls(String path, String contentHash, Function<String, String> contentHashes) {
+        Entry entry = entries.get(path);
+        if (entry == null || entry.calls == null || !entry.contentHash.equals(contentHash)) {
+            return Optional.empty();
+        }
+        for (Map.Entry<String, String> dependency : entry.dependencies.entrySet()) {
+            if (!dependency.getValue().equals(contentHashes.apply(dependency.getKey()))) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(entry.calls);
+    }
+
+    /**
+     * Returns the entry of {@code path} if it was stored for the same content and the same callee files, given
+     * with their content hashes by path.
+     */
+    public Optional<Entry> lookup(String path, String contentHash, Map<String, String> dependencies) {
+        Entry entry = entries.get(path);
+        if (entry == null || !entry.contentHash.equals(contentHash) || !entry.dependencies.equals(dependencies)) {
+            return Optional.empty();
+        }
+        used.add(path);
+        return Optional.of(entry);
+    }
+
+    public void store(String path, String contentHash, Map<String, String> dependencies, FileCalls calls, int lines,
+                      List<Vulnerability> vulnerabilities) {
+        entries.put(path, new Entry(contentHash, new TreeMap<>(dependencies), calls, lines,
+                List.copyOf(vulnerabilities)));
+        used.add(path);
+    }
+
+    /**
+     * Writes the entries used by this scan back to disk; entries of files not scanned this time are dropped.
+     */
+    public void save() throws IOException {
+        Snapshot snapshot = new Snapshot();
+        snapshot.scannerVersion = SCANNER_VERSION;
+        snapshot.rulesVersion = RULES_VERSION;
+        snapshot.files = files != null ? new TreeSet<>(files) : null;
+        snapshot.entries = new TreeMap<>();
+        for (String path : used) {
+            snapshot.entries.put(path, entries.get(path));
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = Files.createTempFile(parent, "scan-cache", ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            new Gson().toJson(snapshot, writer);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static String hash(ByteBuffer content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static final class Entry {
+        private final String contentHash;
+        // Content hashes of the callee files by path
+        private final Map<String, String> dependencies;
+        private final FileCalls calls;
+        private final int lines;
+        private final List<Vulnerability> vulnerabilities;
+
+        private Entry(String contentHash, Map<String, String> dependencies, FileCalls calls, int lines,
+                      List<Vulnerability> vulnerabilities) {
+            this.contentHash = contentHash;
+            this.dependencies = dependencies;
+            this.calls = calls;
+            this.lines = lines;
+            this.vulnerabilities = vulnerabilities;
+        }
+
+        public int getLines() { return lines; }
+        public List<Vulnerability> getVulnerabilities() { return vulnerabilities; }
+    }
+
+    private static final class Snapshot {
+        private String scannerVersion;
+        private int rulesVersion;
+        private Set<String> files;
+        private Map<String, Entry> entries;
+    }
+}
@@ -0,0 +1,91 @@
+package me.stefan923.codescanner.cache;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.cache.CacheStats;
+import com.github.javaparser.symbolsolver.cache.DefaultCacheStats;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Directory cache for the symbol solver's {@code JavaParserTypeSolver}, which parses every source of a package
+ * whenever it looks for a type that has no file of its own. Only the paths of each directory's sources are
+ * kept; the sources themselves are read back from {@code units}, the type solver's cache of parsed files, so
+ * that cache's bound alone decides how many ASTs stay reachable. A directory reads as a miss once any of its
+ * sources has been evicted, and the type solver then lists it again, parsing only the evicted sources.
+ */
+public final class SourceDirectoryCache implements Cache<Path, List<CompilationUnit>> {
+    private final Cache<Path, Optional<CompilationUnit>> units;
+    private final Map<Path, List<Path>> directories = new ConcurrentHashMap<>();
+
+    public SourceDirectoryCache(Cache<Path, Optional<CompilationUnit>> units) {
+        this.units = units;
+    }
+
+    @Override
+    public void put(Path directory, List<CompilationUnit> sources) {
+        List<Path> paths = new ArrayList<>(sources.size());
+        for (CompilationUnit source : sources) {
+            Optional<Path> path = source.getStorage().map(CompilationUnit.Storage::getPath);
+            if (path.isEmpty()) {
+                // Cannot be read back; leave the directory uncached.
+                return;
+            }
+            paths.add(path.get());
+        }
+        directories.put(directory, paths);
+    }
+
+    @Override
+    public Optional<List<CompilationUnit>> get(Path directory) {
+        List<Path> paths = directories.get(directory);
+        if (paths == null) {
+            return Optional.empty();
+        }
+        List<CompilationUnit> sources = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            Optional<CompilationUnit> source = units.get(path).flatMap(unit -> unit);
+            if (source.isEmpty()) {
+                directories.remove(directory);
+                return Optional.empty();
+            }
+            sources.add(source.get());
+        }
+        return Optional.of(sources);
+    }
+
+    @Override
+    public void remove(Path directory) {
+        directories.remove(directory);
+    }
+
+    @Override
+    public void removeAll() {
+        directories.clear();
+    }
+
+    @Override
+    public boolean contains(Path directory) {
+        return get(directory).isPresent();
+    }
+
+    @Override
+    public long size() {
+        return directories.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return directories.isEmpty();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new DefaultCacheStats(0, 0, 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,344 @@
+package me.stefan923.codescanner.callgraph;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Project-wide call graph, built once per scan from the {@link FileCalls} of every source file.
+ * <p>
+ * Call targets are numbered densely: ids below {@link #methodCount()} are methods declared in the scanned
+ * sources, the remaining ids are resolved targets outside them (JDK and library methods). Edges are kept in
+ * compressed rows ({@code calleeOffsets}/{@code callees}), and call sites per file in sorted position arrays,
+ * so a call expression from any parse of a file maps back to its target without symbol resolution.
+ */
+public final class CallGraph {
+    public static final int UNRESOLVED = -1;
+    public static final int NOT_INDEXED = -2;
+
+    private final Path[] files;
+    private final Map<Path, Integer> fileIds;
+    private final String[] signatures;
+    private final Map<String, Integer> ids;
+    private final int methodCount;
+    private final BitSet resolvable;
+    private final int[] declaringFile;
+    // Declared methods grouped by declaring file, in the same row layout as the callees
+    private final int[] methodOffsets;
+    private final int[] methodsByFile;
+    private final long[] declarationPosition;
+    private final BitSet hasBody;
+    private final BitSet entryPoints;
+    private final int[] calleeOffsets;
+    private final int[] callees;
+    private final long[][] sitePositions;
+    private final int[][] siteTargets;
+
+    private CallGraph(Builder builder) {
+        this.files = builder.files.toArray(new Path[0]);
+        this.fileIds = builder.fileIds;
+        this.signatures = builder.signatures.toArray(new String[0]);
+        this.ids = builder.ids;
+        this.methodCount = builder.methodCount;
+        this.resolvable = builder.resolvable;
+        this.declaringFile = Arrays.copyOf(builder.declaringFile, methodCount);
+        this.declarationPosition = Arrays.copyOf(builder.declarationPosition, methodCount);
+        this.hasBody = builder.hasBody;
+        this.entryPoints = builder.entryPoints;
+        this.calleeOffsets = builder.calleeOffsets;
+        this.callees = builder.callees;
+        this.sitePositions = builder.sitePositions;
+        this.siteTargets = builder.siteTargets;
+
+        this.methodOffsets = new int[files.length + 1];
+        for (int method = 0; method < methodCount; method++) {
+            methodOffsets[declaringFile[method] + 1]++;
+        }
+        for (int file = 0; file < files.length; file++) {
+            methodOffsets[file + 1] += methodOffsets[file];
+        }
+        this.methodsByFile = new int[methodCount];
+        int[] fill = Arrays.copyOf(methodOffsets, files.length);
+        for (int method = 0; method < methodCount; method++) {
+            methodsByFile[fill[declaringFile[method]]++] = method;
+        }
+    }
+
+    /**
+     * Merges the per-file indexes. Files are numbered in the given order; a method declared in several files
+     * keeps its first declaration.
+     */
+    public static CallGraph build(List<FileCalls> fileCalls) {
+        return new CallGraph(new Builder(fileCalls));
+    }
+
+    public static long position(Position position) {
+        return ((long) position.line << 32) | (position.column & 0xFFFFFFFFL);
+    }
+
+    public int methodCount() {
+        return methodCount;
+    }
+
+    public int edgeCount() {
+        return callees.length;
+    }
+
+    public int fileCount() {
+        return files.length;
+    }
+
+    /**
+     * Returns the id of a qualified signature, or {@link #UNRESOLVED} if no indexed call or declaration uses it.
+     */
+    public int idOf(String signature) {
+        return ids.getOrDefault(signature, UNRESOLVED);
+    }
+
+    public String signature(int id) {
+        return signatures[id];
+    }
+
+    public boolean isDeclared(int id) {
+        return id >= 0 && id < methodCount;
+    }
+
+    /**
+     * Whether the target's package could be determined when the call was resolved.
+     */
+    public boolean isResolvable(int id) {
+        return id >= 0 && resolvable.get(id);
+    }
+
+    public boolean hasBody(int method) {
+        return isDeclared(method) && hasBody.get(method);
+    }
+
+    public Path declaringFile(int method) {
+        return files[declaringFile[method]];
+    }
+
+    public long declarationPosition(int method) {
+        return declarationPosition[method];
+    }
+
+    public boolean isEntryPoint(int method) {
+        return isDeclared(method) && entryPoints.get(method);
+    }
+
+    public int[] entryPoints() {
+        return entryPoints.stream().toArray();
+    }
+
+    public int[] callees(int method) {
+        return Arrays.copyOfRange(callees, calleeOffsets[method], calleeOffsets[method + 1]);
+    }
+
+    /**
+     * Returns the declared methods that call, directly or through other methods, a method declared in one of
+     * {@code changed}, not counting the methods of {@code changed} themselves unless they are among them.
+     */
+    public BitSet callers(Collection<Path> changed) {
+        int[] callerOffsets = new int[methodCount + 1];
+        for (int method = 0; method < methodCount; method++) {
+            for (int i = calleeOffsets[method]; i < calleeOffsets[method + 1]; i++) {
+                if (callees[i] < methodCount) {
+                    callerOffsets[callees[i] + 1]++;
+                }
+            }
+        }
+        for (int method = 0; method < methodCount; method++) {
+            callerOffsets[method + 1] += callerOffsets[method];
+        }
+        int[] callers = new int[callerOffsets[methodCount]];
+        int[] fill = Arrays.copyOf(callerOffsets, methodCount);
+        for (int method = 0; method < methodCount; method++) {
+            for (int i = calleeOffsets[method]; i < calleeOffsets[method + 1]; i++) {
+                if (callees[i] < methodCount) {
+                    callers[fill[callees[i]]++] = method;
+                }
+            }
+        }
+
+        BitSet reached = new BitSet(methodCount);
+        BitSet result = new BitSet(methodCount);
+        Deque<Integer> pending = new ArrayDeque<>();
+        for (int method = 0; method < methodCount; method++) {
+            if (changed.contains(files[declaringFile[method]])) {
+                reached.set(method);
+                pending.push(method);
+            }
+        }
+        while (!pending.isEmpty()) {
+            int method = pending.pop();
+            for (int i = callerOffsets[method]; i < callerOffsets[method + 1]; i++) {
+                int caller = callers[i];
+                result.set(caller);
+                if (!reached.get(caller)) {
+                    reached.set(caller);
+                    pending.push(caller);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the other files declaring a method that a method of {@code file} calls, directly or through other
+     * methods. Their findings are reported with those of {@code file}.
+     */
+    public Set<Path> calleeFiles(Path file) {
+        Set<Path> result = new HashSet<>();
+        Integer fileId = fileIds.get(file);
+        if (fileId == null) {
+            return result;
+        }
+        BitSet reached = new BitSet(methodCount);
+        Deque<Integer> pending = new ArrayDeque<>();
+        for (int i = methodOffsets[fileId]; i < methodOffsets[fileId + 1]; i++) {
+            reached.set(methodsByFile[i]);
+            pending.push(methodsByFile[i]);
+        }
+        while (!pending.isEmpty()) {
+            int method = pending.pop();
+            for (int i = calleeOffsets[method]; i < calleeOffsets[method + 1]; i++) {
+                int callee = callees[i];
+                if (callee < methodCount && !reached.get(callee)) {
+                    reached.set(callee);
+                    pending.push(callee);
+                    if (declaringFile[callee] != fileId) {
+                        result.add(files[declaringFile[callee]]);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the id of the method a call expression targets, {@link #UNRESOLVED} if the pre-pass could not
+     * resolve it, or {@link #NOT_INDEXED} if the call is not part of an indexed file.
+     */
+    public int target(MethodCallExpr mce) {
+        Optional<Position> end = mce.getEnd();
+        Optional<Path> path = mce.findCompilationUnit()
+                .flatMap(CompilationUnit::getStorage)
+                .map(CompilationUnit.Storage::getPath);
+        if (end.isEmpty() || path.isEmpty()) {
+            return NOT_INDEXED;
+        }
+        Integer file = fileIds.get(path.get());
+        if (file == null) {
+            return NOT_INDEXED;
+        }
+        int site = Arrays.binarySearch(sitePositions[file], position(end.get()));
+        return site >= 0 ? siteTargets[file][site] : NOT_INDEXED;
+    }
+
+    private static final class Builder {
+        private final List<Path> files = new ArrayList<>();
+        private final Map<Path, Integer> fileIds = new HashMap<>();
+        private final List<String> signatures = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final BitSet resolvable = new BitSet();
+        private final BitSet hasBody = new BitSet();
+        private final BitSet entryPoints = new BitSet();
+        private int[] declaringFile = new int[64];
+        private long[] declarationPosition = new long[64];
+        private int methodCount;
+        private int[] calleeOffsets;
+        private int[] callees;
+        private long[][] sitePositions;
+        private int[][] siteTargets;
+
+        private Builder(List<FileCalls> fileCalls) {
+            for (FileCalls file : fileCalls) {
+                if (!fileIds.containsKey(file.path)) {
+                    fileIds.put(file.path, files.size());
+                    files.add(file.path);
+                }
+            }
+            // Declared methods first, so they take the low ids.
+            for (FileCalls file : fileCalls) {
+                int fileId = fileIds.get(file.path);
+                for (FileCalls.Declared method : file.methods) {
+                    if (ids.containsKey(method.signature)) {
+                        continue;
+                    }
+                    int id = intern(method.signature);
+                    if (id == declaringFile.length) {
+                        declaringFile = Arrays.copyOf(declaringFile, id * 2);
+                        declarationPosition = Arrays.copyOf(declarationPosition, id * 2);
+                    }
+                    declaringFile[id] = fileId;
+                    declarationPosition[id] = method.position;
+                    hasBody.set(id, method.hasBody);
+                    entryPoints.set(id, method.entryPoint);
+                }
+            }
+            methodCount = signatures.size();
+
+            sitePositions = new long[files.size()][];
+            siteTargets = new int[files.size()][];
+            long[] edges = new long[16];
+            int edgeCount = 0;
+            for (FileCalls file : fileCalls) {
+                int fileId = fileIds.get(file.path);
+                List<FileCalls.Site> sites = new ArrayList<>(file.sites);
+                sites.sort(Comparator.comparingLong(site -> site.position));
+                long[] positions = new long[sites.size()];
+                int[] targets = new int[sites.size()];
+                for (int i = 0; i < sites.size(); i++) {
+                    FileCalls.Site site = sites.get(i);
+                    int target = site.target != null ? intern(site.target) : UNRESOLVED;
+                    positions[i] = site.position;
+                    targets[i] = target;
+                    if (target >= 0 && site.resolvable) {
+                        resolvable.set(target);
+                    }
+                    Integer caller = site.caller != null ? ids.get(site.caller) : null;
+                    if (caller != null && target >= 0 && target < methodCount) {
+                        if (edgeCount == edges.length) {
+                            edges = Arrays.copyOf(edges, edgeCount * 2);
+                        }
+                        edges[edgeCount++] = ((long) caller << 32) | target;
+                    }
+                }
+                sitePositions[fileId] = positions;
+                siteTargets[fileId] = targets;
+            }
+            buildRows(edges, edgeCount);
+        }
+
+        private int intern(String signature) {
+            Integer id = ids.get(signature);
+            if (id == null) {
+                id = signatures.size();
+                signatures.add(signature);
+                ids.put(signature, id);
+            }
+            return id;
+        }
+
+        private void buildRows(long[] edges, int edgeCount) {
+            Arrays.sort(edges, 0, edgeCount);
+            calleeOffsets = new int[methodCount + 1];
+            callees = new int[edgeCount];
+            int size = 0;
+            for (int i = 0; i < edgeCount; i++) {
+                if (i > 0 && edges[i] == edges[i - 1]) {
+                    continue;
+                }
+                calleeOffsets[(int) (edges[i] >>> 32) + 1]++;
+                callees[size++] = (int) edges[i];
+            }
+            for (int method = 0; method < methodCount; method++) {
+                calleeOffsets[method + 1] += calleeOffsets[method];
+            }
+            callees = Arrays.copyOf(callees, size);
+        }
+    }
+}
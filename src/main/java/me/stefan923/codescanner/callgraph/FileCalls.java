@@ -0,0 +1,173 @@
+package me.stefan923.codescanner.callgraph;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import me.stefan923.codescanner.resolution.CallResolver;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The methods declared in one source file and the resolved targets of its call sites, collected by the call
+ * graph pre-pass. Instances are built independently per file and merged by {@link CallGraph#build}. They are
+ * persisted with scan cache entries, which are keyed by path already, so the path itself is not.
+ */
+public final class FileCalls {
+    private static final Set<String> SERVLET_HANDLERS = Set.of(
+            "doGet", "doPost", "doPut", "doDelete", "doPatch", "doHead", "doOptions", "service"
+    );
+
+    final transient Path path;
+    final List<Declared> methods = new ArrayList<>();
+    final List<Site> sites = new ArrayList<>();
+
+    private FileCalls(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns this index for the file at {@code path}, as needed for an index read back from the scan cache.
+     */
+    public FileCalls at(Path path) {
+        FileCalls file = new FileCalls(path);
+        file.methods.addAll(methods);
+        file.sites.addAll(sites);
+        return file;
+    }
+
+    /**
+     * Returns the simple names of the methods declared in this file.
+     */
+    public Set<String> methodNames() {
+        Set<String> names = new HashSet<>();
+        for (Declared method : methods) {
+            names.add(method.name);
+        }
+        return names;
+    }
+
+    /**
+     * Returns the qualified signatures of the methods declared in this file.
+     */
+    public Set<String> signatures() {
+        Set<String> signatures = new HashSet<>();
+        for (Declared method : methods) {
+            signatures.add(method.signature);
+        }
+        return signatures;
+    }
+
+    /**
+     * Returns the qualified signatures of the methods called from this file that could be resolved.
+     */
+    public Set<String> targets() {
+        Set<String> targets = new HashSet<>();
+        for (Site site : sites) {
+            if (site.target != null) {
+                targets.add(site.target);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Indexes a parsed file. {@code callResolver} must belong to the thread that parsed {@code cu}.
+     */
+    public static FileCalls index(Path path, CompilationUnit cu, CallResolver callResolver) {
+        FileCalls file = new FileCalls(path);
+        Map<MethodDeclaration, String> signatures = new IdentityHashMap<>();
+        for (MethodDeclaration md : cu.findAll(MethodDeclaration.class)) {
+            String signature = signature(md);
+            signatures.put(md, signature);
+            md.getBegin().ifPresent(begin -> file.methods.add(new Declared(signature, md.getNameAsString(), CallGraph.position(begin),
+                    md.getBody().isPresent(), isEntryPoint(md))));
+        }
+        for (MethodCallExpr mce : cu.findAll(MethodCallExpr.class)) {
+            Optional<Position> end = mce.getEnd();
+            if (end.isEmpty()) {
+                continue;
+            }
+            String caller = signatures.get(enclosingMethod(mce));
+            String target = callResolver.qualifiedSignature(mce).orElse(null);
+            file.sites.add(new Site(CallGraph.position(end.get()), caller, target,
+                    target != null && callResolver.isResolvable(mce)));
+        }
+        return file;
+    }
+
+    private static String signature(MethodDeclaration md) {
+        try {
+            return md.resolve().getQualifiedSignature();
+        } catch (Exception e) {
+            // Parameter types outside the solver's reach; keep the method as a node with a positional key.
+            String type = enclosingType(md);
+            String position = md.getBegin().map(begin -> begin.line + ":" + begin.column).orElse("?");
+            return type + "." + md.getNameAsString() + "@" + position;
+        }
+    }
+
+    private static MethodDeclaration enclosingMethod(Node node) {
+        for (Node parent = node.getParentNode().orElse(null); parent != null; parent = parent.getParentNode().orElse(null)) {
+            if (parent instanceof MethodDeclaration md) {
+                return md;
+            }
+        }
+        return null;
+    }
+
+    private static String enclosingType(Node node) {
+        for (Node parent = node.getParentNode().orElse(null); parent != null; parent = parent.getParentNode().orElse(null)) {
+            if (parent instanceof TypeDeclaration<?> type) {
+                return type.getFullyQualifiedName().orElse("?");
+            }
+        }
+        return "?";
+    }
+
+    private static boolean isEntryPoint(MethodDeclaration md) {
+        if (md.isStatic() && md.getNameAsString().equals("main") && md.getParameters().size() == 1) {
+            return true;
+        }
+        if (!SERVLET_HANDLERS.contains(md.getNameAsString())) {
+            return false;
+        }
+        Optional<Node> parent = md.getParentNode();
+        return parent.isPresent() && parent.get() instanceof ClassOrInterfaceDeclaration type
+                && type.getExtendedTypes().stream().anyMatch(t -> t.getNameAsString().endsWith("HttpServlet"));
+    }
+
+    static final class Declared {
+        final String signature;
+        final String name;
+        final long position;
+        final boolean hasBody;
+        final boolean entryPoint;
+
+        Declared(String signature, String name, long position, boolean hasBody, boolean entryPoint) {
+            this.signature = signature;
+            this.name = name;
+            this.position = position;
+            this.hasBody = hasBody;
+            this.entryPoint = entryPoint;
+        }
+    }
+
+    static final class Site {
+        final long position;
+        final String caller;
+        final String target;
+        final boolean resolvable;
+
+        Site(long position, String caller, String target, boolean resolvable) {
+            this.position = position;
+            this.caller = caller;
+            this.target = target;
+            this.resolvable = resolvable;
+        }
+    }
+}
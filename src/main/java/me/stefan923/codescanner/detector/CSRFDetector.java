@@ -3,16 +3,20 @@ package me.stefan923.codescanner.detector;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.SimpleName;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.ast.expr.TextBlockLiteralExpr;
 import com.github.javaparser.ast.stmt.BlockStmt;
 import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import me.stefan923.codescanner.Vulnerability;
+import me.stefan923.codescanner.taint.TaintEnvironment;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
-public class CSRFDetector implements VulnerabilityDetector {
+public class CSRFDetector implements FindingDetector {
     private static final Set<String> STATE_CHANGING_METHODS = Set.of(
             "doPost", "doPut", "doDelete", "doPatch"
     );
@@ -22,11 +26,21 @@ public class CSRFDetector implements VulnerabilityDetector {
     private static final Set<String> HTTP_REQUEST_METHODS = Set.of(
             "getParameter", "getHeader", "getAttribute", "getSession"
     );
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("token|csrf");
+
+    // State-changing methods all start with "do", so the prefix covers them as well.
+    private static final DetectorTargets TARGETS = DetectorTargets.builder()
+            .methodDeclarationPrefixes(List.of("do"))
+            .methodDeclarations(Set.of("service"))
+            .build();
 
     @Override
-    public List<Vulnerability> detect(Node node, Map<String, Boolean> taintMap) {
-        List<Vulnerability> csrfVulnerabilities = new ArrayList<>();
+    public DetectorTargets targets() {
+        return TARGETS;
+    }
 
+    @Override
+    public void detect(Node node, TaintEnvironment taint, FindingsSink sink) {
         if (node instanceof MethodDeclaration md) {
             String methodName = md.getNameAsString();
             boolean isStateChanging = STATE_CHANGING_METHODS.contains(methodName);
@@ -38,48 +52,97 @@ public class CSRFDetector implements VulnerabilityDetector {
 
                 String className = getEnclosingClassName(md);
                 int line = md.getBegin().map(p -> p.line).orElse(-1);
-                csrfVulnerabilities.add(new Vulnerability("CSRF",
+                sink.report(new Vulnerability("CSRF",
                         "State-changing method " + methodName + " lacks CSRF protection",
                         className, line));
             }
         }
-        return csrfVulnerabilities;
     }
 
     private boolean hasCSRFValidation(BlockStmt body) {
-        // Check for explicit validation methods
-        if (body.findAll(MethodCallExpr.class).stream()
-                .anyMatch(mce -> CSRF_VALIDATION_METHODS.contains(mce.getNameAsString()))) {
-            return true;
-        }
+        ValidationScan scan = new ValidationScan();
+        body.accept(scan, null);
+        // Explicit validation methods, or the token validation pattern
+        return scan.validationCall || (scan.tokenFetch && scan.sessionCheck && scan.guardedCondition);
+    }
 
-        // Check for token validation pattern
-        List<MethodCallExpr> requestCalls = body.findAll(MethodCallExpr.class).stream()
-                .filter(mce -> HTTP_REQUEST_METHODS.contains(mce.getNameAsString()))
-                .collect(Collectors.toList());
+    private static boolean mentionsToken(String text) {
+        return TOKEN_PATTERN.matcher(text).find();
+    }
+
+    /**
+     * Collects everything {@link #hasCSRFValidation} looks for in one pass over a handler body. Identifiers and
+     * string literals seen inside a request call or an {@code if} condition are attributed to every such
+     * enclosing node, so nothing has to be printed back to source.
+     */
+    private static final class ValidationScan extends VoidVisitorAdapter<Void> {
+        private final Deque<Mentions> open = new ArrayDeque<>();
+        private boolean validationCall;
+        private boolean tokenFetch;
+        private boolean sessionCheck;
+        private boolean guardedCondition;
+
+        @Override
+        public void visit(MethodCallExpr mce, Void arg) {
+            String name = mce.getNameAsString();
+            if (CSRF_VALIDATION_METHODS.contains(name)) {
+                validationCall = true;
+            }
+            if (!HTTP_REQUEST_METHODS.contains(name)) {
+                super.visit(mce, arg);
+                return;
+            }
+            Mentions call = new Mentions();
+            open.push(call);
+            super.visit(mce, arg);
+            open.pop();
+            tokenFetch |= call.token;
+            sessionCheck |= call.session;
+        }
 
-        boolean hasTokenFetch = requestCalls.stream()
-                .anyMatch(mce -> mce.toString().matches(".*(token|csrf).*"));
+        @Override
+        public void visit(IfStmt ifStmt, Void arg) {
+            Mentions condition = new Mentions();
+            open.push(condition);
+            ifStmt.getCondition().accept(this, arg);
+            open.pop();
+            guardedCondition |= condition.token;
+            ifStmt.getThenStmt().accept(this, arg);
+            ifStmt.getElseStmt().ifPresent(elseStmt -> elseStmt.accept(this, arg));
+            ifStmt.getComment().ifPresent(comment -> comment.accept(this, arg));
+        }
 
-        boolean hasSessionCheck = requestCalls.stream()
-                .anyMatch(mce -> mce.toString().contains("getSession"));
+        @Override
+        public void visit(SimpleName name, Void arg) {
+            mention(name.getIdentifier());
+        }
 
-        boolean hasConditionalCheck = body.findAll(IfStmt.class).stream()
-                .anyMatch(ifStmt -> ifStmt.getCondition().toString().matches(".*(token|csrf).*"));
+        @Override
+        public void visit(StringLiteralExpr literal, Void arg) {
+            mention(literal.getValue());
+        }
 
-        return hasTokenFetch && hasSessionCheck && hasConditionalCheck;
-    }
+        @Override
+        public void visit(TextBlockLiteralExpr literal, Void arg) {
+            mention(literal.getValue());
+        }
 
-    private boolean bodyContainsHttpClientRequest(BlockStmt body) {
-        return body.findAll(MethodCallExpr.class).stream().anyMatch(mce -> {
-            boolean hasHttpClient = mce.getScope().map(scope -> scope.toString().contains("HttpClient")).orElse(false);
-            boolean isExecute = mce.getNameAsString().equals("execute");
-            return hasHttpClient || isExecute;
-        });
+        private void mention(String text) {
+            if (open.isEmpty()) {
+                return;
+            }
+            boolean token = mentionsToken(text);
+            boolean session = text.contains("getSession");
+            for (Mentions mentions : open) {
+                mentions.token |= token;
+                mentions.session |= session;
+            }
+        }
     }
 
-    private boolean bodyContainsCSRFValidation(BlockStmt body) {
-        return body.toString().contains("validateToken");
+    private static final class Mentions {
+        private boolean token;
+        private boolean session;
     }
 
     private String getEnclosingClassName(Node node) {
@@ -0,0 +1,204 @@
+package me.stefan923.codescanner.detector;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+
+import java.util.*;
+
+/**
+ * Declares which AST nodes a detector can report on, so {@link DispatchingVulnerabilityDetector} can skip it
+ * for every other node. Method calls and declarations are matched by name (exact, prefix or substring) and
+ * binary expressions by operator; other node kinds are matched by type.
+ * <p>
+ * Targets can also state when a detector reports at all: only for tainted data, and which calls it treats
+ * as taint sources, or, for untainted data, only for arithmetic on constants. These conditions let
+ * {@link me.stefan923.codescanner.prefilter.SourcePreFilter} rule out files before they are parsed.
+ */
+public final class DetectorTargets {
+    /** Targets of a detector that has not declared any; it is offered every node. */
+    public static final DetectorTargets ALL_NODES = new DetectorTargets(new Builder(), true);
+
+    private final boolean allNodes;
+    private final Set<String> callNames;
+    private final List<String> callPrefixes;
+    private final List<String> callSubstrings;
+    private final Set<String> declarationNames;
+    private final List<String> declarationPrefixes;
+    private final Set<BinaryExpr.Operator> operators;
+    private final Set<Class<? extends Node>> nodeTypes;
+    private final Set<String> taintSources;
+    private final boolean requiresTaint;
+    private final boolean requiresConstant;
+
+    private DetectorTargets(Builder builder, boolean allNodes) {
+        this.allNodes = allNodes;
+        this.callNames = Set.copyOf(builder.callNames);
+        this.callPrefixes = List.copyOf(builder.callPrefixes);
+        this.callSubstrings = List.copyOf(builder.callSubstrings);
+        this.declarationNames = Set.copyOf(builder.declarationNames);
+        this.declarationPrefixes = List.copyOf(builder.declarationPrefixes);
+        this.operators = builder.operators.isEmpty()
+                ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(builder.operators));
+        this.nodeTypes = Set.copyOf(builder.nodeTypes);
+        this.taintSources = Set.copyOf(builder.taintSources);
+        this.requiresTaint = builder.requiresTaint;
+        this.requiresConstant = builder.requiresConstant;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean matchesMethodCall(String name) {
+        return allNodes || callNames.contains(name)
+                || callPrefixes.stream().anyMatch(name::startsWith)
+                || callSubstrings.stream().anyMatch(name::contains);
+    }
+
+    public boolean matchesMethodDeclaration(String name) {
+        return allNodes || declarationNames.contains(name)
+                || declarationPrefixes.stream().anyMatch(name::startsWith);
+    }
+
+    public boolean matchesOperator(BinaryExpr.Operator operator) {
+        return allNodes || operators.contains(operator);
+    }
+
+    /**
+     * Whether nodes of the given type, other than method calls, method declarations and binary expressions,
+     * are of interest.
+     */
+    public boolean matchesNodeType(Class<? extends Node> type) {
+        return allNodes || nodeTypes.contains(type);
+    }
+
+    public boolean isAllNodes() {
+        return allNodes;
+    }
+
+    public Set<String> getCallNames() {
+        return callNames;
+    }
+
+    public List<String> getCallPrefixes() {
+        return callPrefixes;
+    }
+
+    public List<String> getCallSubstrings() {
+        return callSubstrings;
+    }
+
+    public Set<String> getDeclarationNames() {
+        return declarationNames;
+    }
+
+    public List<String> getDeclarationPrefixes() {
+        return declarationPrefixes;
+    }
+
+    public Set<BinaryExpr.Operator> getOperators() {
+        return operators;
+    }
+
+    public Set<Class<? extends Node>> getNodeTypes() {
+        return nodeTypes;
+    }
+
+    /**
+     * Names of the calls the detector itself treats as tainted, in addition to the taint map.
+     */
+    public Set<String> getTaintSources() {
+        return taintSources;
+    }
+
+    /**
+     * Whether the detector only reports tainted data.
+     */
+    public boolean requiresTaint() {
+        return requiresTaint;
+    }
+
+    /**
+     * Whether the detector only reports untainted data for arithmetic involving constants: integer or character
+     * literals, or the {@code MIN_VALUE} and {@code MAX_VALUE} fields of the integer types. Without them no operand
+     * range lies far enough from zero for a result to fall entirely outside the int range.
+     */
+    public boolean requiresConstant() {
+        return requiresConstant;
+    }
+
+    public static final class Builder {
+        private final Set<String> callNames = new HashSet<>();
+        private final List<String> callPrefixes = new ArrayList<>();
+        private final List<String> callSubstrings = new ArrayList<>();
+        private final Set<String> declarationNames = new HashSet<>();
+        private final List<String> declarationPrefixes = new ArrayList<>();
+        private final Set<BinaryExpr.Operator> operators = new HashSet<>();
+        private final Set<Class<? extends Node>> nodeTypes = new HashSet<>();
+        private final Set<String> taintSources = new HashSet<>();
+        private boolean requiresTaint;
+        private boolean requiresConstant;
+
+        private Builder() {
+        }
+
+        public Builder methodCalls(Collection<String> names) {
+            callNames.addAll(names);
+            return this;
+        }
+
+        public Builder methodCallPrefixes(Collection<String> prefixes) {
+            callPrefixes.addAll(prefixes);
+            return this;
+        }
+
+        public Builder methodCallsContaining(Collection<String> substrings) {
+            callSubstrings.addAll(substrings);
+            return this;
+        }
+
+        public Builder methodDeclarations(Collection<String> names) {
+            declarationNames.addAll(names);
+            return this;
+        }
+
+        public Builder methodDeclarationPrefixes(Collection<String> prefixes) {
+            declarationPrefixes.addAll(prefixes);
+            return this;
+        }
+
+        public Builder binaryOperators(BinaryExpr.Operator... ops) {
+            operators.addAll(Arrays.asList(ops));
+            return this;
+        }
+
+        public Builder nodes(Class<? extends Node> type) {
+            if (type == MethodCallExpr.class || type == MethodDeclaration.class || type == BinaryExpr.class) {
+                throw new IllegalArgumentException("Use the name or operator targets for " + type.getSimpleName());
+            }
+            nodeTypes.add(type);
+            return this;
+        }
+
+        public Builder taintSources(Collection<String> names) {
+            taintSources.addAll(names);
+            return this;
+        }
+
+        public Builder requiresTaint() {
+            requiresTaint = true;
+            return this;
+        }
+
+        public Builder requiresConstant() {
+            requiresConstant = true;
+            return this;
+        }
+
+        public DetectorTargets build() {
+            return new DetectorTargets(this, false);
+        }
+    }
+}
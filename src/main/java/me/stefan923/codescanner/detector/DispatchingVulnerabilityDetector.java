@@ -0,0 +1,103 @@
+package me.stefan923.codescanner.detector;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import me.stefan923.codescanner.metrics.ScanMetrics;
+import me.stefan923.codescanner.taint.TaintEnvironment;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Composite detector that only hands a node to the detectors whose {@link DetectorTargets} can match it.
+ * Matching detectors are looked up by method name, operator or node type; per-name results are memoized,
+ * so a call to a method no detector cares about costs a single hash lookup after its first occurrence.
+ * With {@link ScanMetrics}, the time spent in each detector is added to the metrics under its class name.
+ * <p>
+ * Not thread-safe; each visitor should use its own instance.
+ */
+public class DispatchingVulnerabilityDetector implements FindingDetector {
+    private static final FindingDetector[] NONE = new FindingDetector[0];
+
+    private final List<FindingDetector> detectors = new ArrayList<>();
+    private final Map<String, FindingDetector[]> byCallName = new HashMap<>();
+    private final Map<String, FindingDetector[]> byDeclarationName = new HashMap<>();
+    private final Map<BinaryExpr.Operator, FindingDetector[]> byOperator = new EnumMap<>(BinaryExpr.Operator.class);
+    private final Map<Class<? extends Node>, FindingDetector[]> byNodeType = new HashMap<>();
+    private final ScanMetrics metrics;
+
+    public DispatchingVulnerabilityDetector() {
+        this(null);
+    }
+
+    public DispatchingVulnerabilityDetector(ScanMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void addDetector(VulnerabilityDetector detector) {
+        FindingDetector adapted = FindingDetector.adapt(detector);
+        detectors.add(metrics == null
+                ? adapted
+                : timed(adapted, metrics.detectorTimer(detector.getClass().getSimpleName())));
+        byCallName.clear();
+        byDeclarationName.clear();
+        byOperator.clear();
+        byNodeType.clear();
+    }
+
+    @Override
+    public void detect(Node node, TaintEnvironment taint, FindingsSink sink) {
+        for (FindingDetector detector : candidatesFor(node)) {
+            detector.detect(node, taint, sink);
+        }
+    }
+
+    private FindingDetector[] candidatesFor(Node node) {
+        if (node instanceof MethodCallExpr mce) {
+            return byCallName.computeIfAbsent(mce.getNameAsString(),
+                    name -> select(targets -> targets.matchesMethodCall(name)));
+        }
+        if (node instanceof BinaryExpr bin) {
+            return byOperator.computeIfAbsent(bin.getOperator(),
+                    op -> select(targets -> targets.matchesOperator(op)));
+        }
+        if (node instanceof MethodDeclaration md) {
+            return byDeclarationName.computeIfAbsent(md.getNameAsString(),
+                    name -> select(targets -> targets.matchesMethodDeclaration(name)));
+        }
+        return byNodeType.computeIfAbsent(node.getClass(),
+                type -> select(targets -> targets.matchesNodeType(type)));
+    }
+
+    private static FindingDetector timed(FindingDetector detector, LongConsumer timer) {
+        return new FindingDetector() {
+            @Override
+            public void detect(Node node, TaintEnvironment taint, FindingsSink sink) {
+                long start = System.nanoTime();
+                try {
+                    detector.detect(node, taint, sink);
+                } finally {
+                    timer.accept(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public DetectorTargets targets() {
+                return detector.targets();
+            }
+        };
+    }
+
+    private FindingDetector[] select(Predicate<DetectorTargets> matches) {
+        List<FindingDetector> selected = new ArrayList<>();
+        for (FindingDetector detector : detectors) {
+            if (matches.test(detector.targets())) {
+                selected.add(detector);
+            }
+        }
+        return selected.isEmpty() ? NONE : selected.toArray(NONE);
+    }
+}
@@ -0,0 +1,29 @@
+package me.stefan923.codescanner.detector;
+
+import me.stefan923.codescanner.Vulnerability;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Appends findings to a list as they are reported, dropping any equal to one the list already holds. Equal
+ * findings are those sharing a {@link Vulnerability#getFingerprint() fingerprint}, so none is computed here.
+ * Not thread-safe.
+ */
+public class FindingCollector implements FindingsSink {
+    private final List<Vulnerability> findings;
+    private final Set<Vulnerability> seen = new HashSet<>();
+
+    public FindingCollector(List<Vulnerability> findings) {
+        this.findings = findings;
+        seen.addAll(findings);
+    }
+
+    @Override
+    public void report(Vulnerability vulnerability) {
+        if (seen.add(vulnerability)) {
+            findings.add(vulnerability);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package me.stefan923.codescanner.detector;
+
+import com.github.javaparser.ast.Node;
+import me.stefan923.codescanner.Vulnerability;
+import me.stefan923.codescanner.taint.TaintEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detector that reports findings into a caller-supplied sink, so nothing is allocated for nodes without findings.
+ * Taint is read from a {@link TaintEnvironment}, which resolves each name to the variable it refers to by id.
+ * The list-returning {@link VulnerabilityDetector#detect(Node, Map)} is still available for existing callers.
+ */
+public interface FindingDetector extends VulnerabilityDetector {
+    void detect(Node node, TaintEnvironment taint, FindingsSink sink);
+
+    @Override
+    default List<Vulnerability> detect(Node node, Map<String, Boolean> taintMap) {
+        List<Vulnerability> vulnerabilities = new ArrayList<>();
+        detect(node, TaintEnvironment.fromMap(taintMap), vulnerabilities::add);
+        return vulnerabilities;
+    }
+
+    /**
+     * Wraps a list-returning detector so it can be used where a {@code FindingDetector} is expected.
+     */
+    static FindingDetector adapt(VulnerabilityDetector detector) {
+        if (detector instanceof FindingDetector findingDetector) {
+            return findingDetector;
+        }
+        return new FindingDetector() {
+            @Override
+            public void detect(Node node, TaintEnvironment taint, FindingsSink sink) {
+                for (Vulnerability vulnerability : detector.detect(node, taint.asMap())) {
+                    sink.report(vulnerability);
+                }
+            }
+
+            @Override
+            public DetectorTargets targets() {
+                return detector.targets();
+            }
+        };
+    }
+}
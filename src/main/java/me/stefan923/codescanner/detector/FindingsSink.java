@@ -0,0 +1,18 @@
+package me.stefan923.codescanner.detector;
+
+import me.stefan923.codescanner.Vulnerability;
+
+/**
+ * Receives findings as detectors produce them.
+ */
+@FunctionalInterface
+public interface FindingsSink {
+    void report(Vulnerability vulnerability);
+
+    /**
+     * Returns a sink that attributes findings without a file to {@code file} before passing them on.
+     */
+    default FindingsSink inFile(String file) {
+        return vulnerability -> report(vulnerability.inFile(file));
+    }
+}
@@ -1,165 +1,105 @@
 package me.stefan923.codescanner.detector;
 
 import com.github.javaparser.ast.Node;
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.BinaryExpr;
-import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import me.stefan923.codescanner.Vulnerability;
+import me.stefan923.codescanner.numeric.ConstantValue;
+import me.stefan923.codescanner.numeric.Interval;
+import me.stefan923.codescanner.numeric.IntervalAnalyses;
+import me.stefan923.codescanner.numeric.IntervalAnalysis;
+import me.stefan923.codescanner.taint.TaintEnvironment;
+import me.stefan923.codescanner.taint.TaintEvaluator;
 
-import java.math.BigInteger;
 import java.util.*;
 
-public class IntegerOverflowDetector implements VulnerabilityDetector {
+public class IntegerOverflowDetector implements FindingDetector {
+    private final TaintEvaluator taintEvaluator;
+    private final IntervalAnalyses ranges;
+    private final DetectorTargets targets;
+
+    public IntegerOverflowDetector() {
+        this(new TaintEvaluator(), new IntervalAnalyses());
+    }
+
+    public IntegerOverflowDetector(TaintEvaluator taintEvaluator, IntervalAnalyses ranges) {
+        this.taintEvaluator = taintEvaluator;
+        this.ranges = ranges;
+        this.targets = DetectorTargets.builder()
+                .binaryOperators(BinaryExpr.Operator.PLUS, BinaryExpr.Operator.MINUS, BinaryExpr.Operator.MULTIPLY)
+                .requiresConstant()
+                .taintSources(taintEvaluator.getSources())
+                .build();
+    }
+
+    @Override
+    public DetectorTargets targets() {
+        return targets;
+    }
 
     @Override
-    public List<Vulnerability> detect(Node node, Map<String, Boolean> taintMap) {
-        List<Vulnerability> integerOverflowVulnerabilities = new ArrayList<>();
+    public void detect(Node node, TaintEnvironment taint, FindingsSink sink) {
         if (node instanceof BinaryExpr bin) {
             BinaryExpr.Operator op = bin.getOperator();
 
 
-            if (op == BinaryExpr.Operator.PLUS &&
-                    (bin.getLeft().isStringLiteralExpr() || bin.getRight().isStringLiteralExpr())) {
-                return integerOverflowVulnerabilities; // Skip string concatenation.
+            if (IntervalAnalysis.isStringConcatenation(bin)) {
+                return; // Skip string concatenation.
             }
             if (op == BinaryExpr.Operator.PLUS ||
                     op == BinaryExpr.Operator.MINUS ||
                     op == BinaryExpr.Operator.MULTIPLY) {
 
-                Optional<BigInteger> leftVal = evaluateNumericLiteral(bin.getLeft());
-                Optional<BigInteger> rightVal = evaluateNumericLiteral(bin.getRight());
+                IntervalAnalysis analysis = ranges.forNode(bin);
+                Interval left = analysis.valueOf(bin.getLeft());
+                Interval right = analysis.valueOf(bin.getRight());
+                if (left == null || right == null) {
+                    return; // Not integer arithmetic.
+                }
 
-                if (leftVal.isPresent() && rightVal.isPresent()) {
-                    BigInteger result = null;
+                if (left.isConstant() && right.isConstant()) {
+                    ConstantValue leftVal = ConstantValue.of(left.lo());
+                    ConstantValue rightVal = ConstantValue.of(right.lo());
+                    ConstantValue result = null;
                     switch (op) {
                         case PLUS:
-                            result = leftVal.get().add(rightVal.get());
+                            result = leftVal.add(rightVal);
                             break;
                         case MINUS:
-                            result = leftVal.get().subtract(rightVal.get());
+                            result = leftVal.subtract(rightVal);
                             break;
                         case MULTIPLY:
-                            result = leftVal.get().multiply(rightVal.get());
+                            result = leftVal.multiply(rightVal);
                             break;
                         default:
                             break;
                     }
                     // Check if the result exceeds 32-bit signed integer range.
-                    if (result.compareTo(BigInteger.valueOf(Integer.MAX_VALUE)) > 0) {
-                        String className = getEnclosingClassName(bin);
-                        int line = bin.getBegin().map(pos -> pos.line).orElse(-1);
-                        integerOverflowVulnerabilities.add(new Vulnerability("Integer Overflow",
-                                "Arithmetic operation " + bin + " overflows int range.",
-                                className, line));
+                    if (result.compareTo(Integer.MAX_VALUE) > 0) {
+                        report(bin, " overflows int range.", sink);
                     }
                 } else {
-                    // If not all operands can be resolved to a numeric constant,
-                    // check if any operand is tainted. (If so, we flag potential risk.)
-                    if (isTainted(bin.getLeft(), taintMap) || isTainted(bin.getRight(), taintMap)) {
-                        String className = getEnclosingClassName(bin);
-                        int line = bin.getBegin().map(pos -> pos.line).orElse(-1);
-                        integerOverflowVulnerabilities.add(new Vulnerability("Integer Overflow",
-                                "Arithmetic operation " + bin.toString() + " may overflow due to tainted numeric input.",
-                                className, line));
+                    Interval result = switch (op) {
+                        case PLUS -> left.add(right);
+                        case MINUS -> left.subtract(right);
+                        default -> left.multiply(right);
+                    };
+                    // Every value in range overflows; otherwise only flag ranges reaching past the limit
+                    // with tainted operands.
+                    if (result.lo() > Integer.MAX_VALUE) {
+                        report(bin, " overflows int range.", sink);
+                    } else if (result.hi() > Integer.MAX_VALUE && taintEvaluator.isTainted(bin, taint)) {
+                        report(bin, " may overflow due to tainted numeric input.", sink);
                     }
                 }
             }
         }
-        return integerOverflowVulnerabilities;
     }
 
-    /**
-     * Evaluates an expression as a numeric literal (or a combination thereof).
-     * Handles integer and long literals, binary arithmetic, and attempts to resolve variables.
-     */
-    private Optional<BigInteger> evaluateNumericLiteral(Expression expr) {
-        if (expr.isIntegerLiteralExpr()) {
-            try {
-                int value = Integer.parseInt(expr.asIntegerLiteralExpr().getValue());
-                return Optional.of(BigInteger.valueOf(value));
-            } catch (NumberFormatException e) {
-                return Optional.empty();
-            }
-        } else if (expr.isLongLiteralExpr()) {
-            try {
-                String valStr = expr.asLongLiteralExpr().getValue();
-                if (valStr.endsWith("L") || valStr.endsWith("l")) {
-                    valStr = valStr.substring(0, valStr.length() - 1);
-                }
-                long value = Long.parseLong(valStr);
-                return Optional.of(BigInteger.valueOf(value));
-            } catch (NumberFormatException e) {
-                return Optional.empty();
-            }
-        } else if (expr.isNameExpr()) {
-            String varName = expr.asNameExpr().getNameAsString();
-            return getConstantValueForVariable(varName, expr);
-        } else if (expr.isBinaryExpr()) {
-            BinaryExpr bin = expr.asBinaryExpr();
-            // If PLUS operator involves a string literal, skip.
-            if (bin.getOperator() == BinaryExpr.Operator.PLUS &&
-                    (bin.getLeft().isStringLiteralExpr() || bin.getRight().isStringLiteralExpr())) {
-                return Optional.empty();
-            }
-            Optional<BigInteger> left = evaluateNumericLiteral(bin.getLeft());
-            Optional<BigInteger> right = evaluateNumericLiteral(bin.getRight());
-            if (left.isPresent() && right.isPresent()) {
-                switch (bin.getOperator()) {
-                    case PLUS:
-                        return Optional.of(left.get().add(right.get()));
-                    case MINUS:
-                        return Optional.of(left.get().subtract(right.get()));
-                    case MULTIPLY:
-                        return Optional.of(left.get().multiply(right.get()));
-                    default:
-                        return Optional.empty();
-                }
-            }
-        }
-        return Optional.empty();
-    }
-
-    /**
-     * Attempts to resolve a variable's constant numeric value by looking for its declaration
-     * in the enclosing method. Only returns a value if the initializer is a numeric literal.
-     */
-    private Optional<BigInteger> getConstantValueForVariable(String varName, Node context) {
-        Optional<MethodDeclaration> methodDecl = context.findAncestor(MethodDeclaration.class);
-        if (methodDecl.isPresent()) {
-            List<VariableDeclarator> vars = methodDecl.get().findAll(VariableDeclarator.class,
-                    v -> v.getNameAsString().equals(varName));
-            for (VariableDeclarator var : vars) {
-                if (var.getInitializer().isPresent()) {
-                    Optional<BigInteger> val = evaluateNumericLiteral(var.getInitializer().get());
-                    if (val.isPresent()) {
-                        return val;
-                    }
-                }
-            }
-        }
-        return Optional.empty();
-    }
-
-    private boolean isTainted(Expression expr, Map<String, Boolean> taintMap) {
-        if (expr.isNameExpr()) {
-            String name = expr.asNameExpr().getNameAsString();
-            return taintMap.getOrDefault(name, false);
-        }
-        if (expr.isBinaryExpr()) {
-            BinaryExpr bin = expr.asBinaryExpr();
-            return isTainted(bin.getLeft(), taintMap) || isTainted(bin.getRight(), taintMap);
-        }
-        if (expr.isMethodCallExpr()) {
-            String callName = expr.asMethodCallExpr().getNameAsString();
-            return callName.equals("getParameter") || callName.equals("nextLine") || callName.equals("readLine");
-        }
-        for (Node child : expr.getChildNodes()) {
-            if (child instanceof Expression && isTainted((Expression) child, taintMap))
-                return true;
-        }
-        return false;
+    private void report(BinaryExpr bin, String problem, FindingsSink sink) {
+        String className = getEnclosingClassName(bin);
+        int line = bin.getBegin().map(pos -> pos.line).orElse(-1);
+        sink.report(new Vulnerability("Integer Overflow", "Arithmetic operation " + bin + problem, className, line));
     }
 
     private String getEnclosingClassName(Node node) {
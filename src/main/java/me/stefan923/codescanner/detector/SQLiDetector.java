@@ -6,10 +6,13 @@ import com.github.javaparser.ast.expr.BinaryExpr;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import me.stefan923.codescanner.Vulnerability;
+import me.stefan923.codescanner.resolution.CallResolver;
+import me.stefan923.codescanner.taint.TaintEnvironment;
+import me.stefan923.codescanner.taint.TaintEvaluator;
 
 import java.util.*;
 
-public class SQLiDetector implements VulnerabilityDetector {
+public class SQLiDetector implements FindingDetector {
     private static final Set<String> SQL_EXECUTION_METHODS = Set.of(
             "executeQuery", "executeUpdate", "execute", "executeLargeUpdate", "executeBatch"
     );
@@ -18,71 +21,92 @@ public class SQLiDetector implements VulnerabilityDetector {
             "prepareStatement", "prepareCall"
     );
 
-    private static final Set<String> UNSAFE_CONCAT_METHODS = Set.of(
-            "getParameter", "nextLine", "readLine", "getQueryString", "getHeader"
-    );
+    private final CallResolver callResolver;
+    private final TaintEvaluator taintEvaluator;
+    private final DetectorTargets targets;
+
+    public SQLiDetector() {
+        this(CallResolver.standalone());
+    }
+
+    public SQLiDetector(CallResolver callResolver) {
+        this(callResolver, new TaintEvaluator(TaintEvaluator.DEFAULT_SOURCES, Set.of()));
+    }
+
+    public SQLiDetector(CallResolver callResolver, TaintEvaluator taintEvaluator) {
+        this.callResolver = callResolver;
+        this.taintEvaluator = taintEvaluator;
+        this.targets = DetectorTargets.builder()
+                .methodCalls(SQL_EXECUTION_METHODS)
+                .methodCalls(SQL_PREPARATION_METHODS)
+                .methodCalls(Set.of("append"))
+                .binaryOperators(BinaryExpr.Operator.PLUS)
+                .taintSources(taintEvaluator.getSources())
+                .requiresTaint()
+                .build();
+    }
 
     @Override
-    public List<Vulnerability> detect(Node node, Map<String, Boolean> taintMap) {
-        List<Vulnerability> vulnerabilities = new ArrayList<>();
+    public DetectorTargets targets() {
+        return targets;
+    }
 
+    @Override
+    public void detect(Node node, TaintEnvironment taint, FindingsSink sink) {
         if (node instanceof MethodCallExpr mce) {
             String methodName = mce.getNameAsString();
             String receiverType = resolveReceiverType(mce);
 
             // Check SQL execution methods with tainted arguments
             if (SQL_EXECUTION_METHODS.contains(methodName) && !mce.getArguments().isEmpty()) {
-                detectTaintedArguments(mce, taintMap, vulnerabilities, "SQL execution");
+                detectTaintedArguments(mce, taint, sink, "SQL execution");
             }
 
             // Check SQL preparation methods
             if (SQL_PREPARATION_METHODS.contains(methodName) && !mce.getArguments().isEmpty()) {
-                detectTaintedArguments(mce, taintMap, vulnerabilities, "SQL preparation");
+                detectTaintedArguments(mce, taint, sink, "SQL preparation");
             }
 
             // Detect unsafe concatenation patterns
-            detectUnsafeConcatenation(mce, taintMap, vulnerabilities);
+            detectUnsafeConcatenation(mce, taint, sink);
         }
 
         // Detect inline SQL string concatenation
         if (node instanceof BinaryExpr binExpr && binExpr.getOperator() == BinaryExpr.Operator.PLUS) {
-            detectInlineSqlConcat(binExpr, taintMap, vulnerabilities);
+            detectInlineSqlConcat(binExpr, taint, sink);
         }
-
-        return vulnerabilities;
     }
 
-    private void detectTaintedArguments(MethodCallExpr mce, Map<String, Boolean> taintMap,
-                                        List<Vulnerability> vulnerabilities, String context) {
+    private void detectTaintedArguments(MethodCallExpr mce, TaintEnvironment taint,
+                                        FindingsSink sink, String context) {
         for (Expression arg : mce.getArguments()) {
-            if (isTainted(arg, taintMap)) {
-                vulnerabilities.add(createVulnerability(mce,
+            if (taintEvaluator.isTainted(arg, taint)) {
+                sink.report(createVulnerability(mce,
                         "Tainted data used in " + context + ": " + mce.getNameAsString()));
             }
         }
     }
 
-    private void detectUnsafeConcatenation(MethodCallExpr mce, Map<String, Boolean> taintMap,
-                                           List<Vulnerability> vulnerabilities) {
+    private void detectUnsafeConcatenation(MethodCallExpr mce, TaintEnvironment taint,
+                                           FindingsSink sink) {
         // Check for string concatenation in SQL methods
         if (mce.getNameAsString().equals("append") &&
                 mce.getScope().isPresent() &&
                 mce.getScope().get().toString().contains("StringBuilder")) {
 
             for (Expression arg : mce.getArguments()) {
-                if (isTainted(arg, taintMap)) {
-                    vulnerabilities.add(createVulnerability(mce,
+                if (taintEvaluator.isTainted(arg, taint)) {
+                    sink.report(createVulnerability(mce,
                             "Unsafe SQL concatenation via StringBuilder.append()"));
                 }
             }
         }
     }
 
-    private void detectInlineSqlConcat(BinaryExpr binExpr, Map<String, Boolean> taintMap,
-                                       List<Vulnerability> vulnerabilities) {
-        if (isSqlStringContext(binExpr) &&
-                (isTainted(binExpr.getLeft(), taintMap) || isTainted(binExpr.getRight(), taintMap))) {
-            vulnerabilities.add(createVulnerability(binExpr,
+    private void detectInlineSqlConcat(BinaryExpr binExpr, TaintEnvironment taint,
+                                       FindingsSink sink) {
+        if (isSqlStringContext(binExpr) && taintEvaluator.isTainted(binExpr, taint)) {
+            sink.report(createVulnerability(binExpr,
                     "Inline SQL string concatenation with tainted data"));
         }
     }
@@ -100,55 +124,10 @@ public class SQLiDetector implements VulnerabilityDetector {
                 getEnclosingClassName(node), node.getBegin().map(p -> p.line).orElse(-1));
     }
 
-    private boolean isTainted(Expression expr, Map<String, Boolean> taintMap) {
-        // Base case: Literal expressions are safe
-        if (expr.isLiteralExpr()) return false;
-
-        // Method calls from unsafe sources
-        if (expr.isMethodCallExpr()) {
-            String callName = expr.asMethodCallExpr().getNameAsString();
-            if (UNSAFE_CONCAT_METHODS.contains(callName)) return true;
-
-            // Recursively check arguments
-            return expr.asMethodCallExpr().getArguments().stream()
-                    .anyMatch(arg -> isTainted(arg, taintMap));
-        }
-
-        // Variable references
-        if (expr.isNameExpr()) {
-            String varName = expr.asNameExpr().getNameAsString();
-            return taintMap.getOrDefault(varName, false);
-        }
-
-        // Binary expressions (string concatenation)
-        if (expr.isBinaryExpr()) {
-            BinaryExpr bin = expr.asBinaryExpr();
-            if (bin.getOperator() == BinaryExpr.Operator.PLUS) {
-                return isTainted(bin.getLeft(), taintMap) ||
-                        isTainted(bin.getRight(), taintMap);
-            }
-        }
-
-        // Field access (this.field)
-        if (expr.isFieldAccessExpr()) {
-            return isTainted(expr.asFieldAccessExpr().getScope(), taintMap);
-        }
-
-        // Object creation (new String(...))
-        if (expr.isObjectCreationExpr()) {
-            return expr.asObjectCreationExpr().getArguments().stream()
-                    .anyMatch(arg -> isTainted(arg, taintMap));
-        }
-
-        return false;
-    }
-
     private String resolveReceiverType(MethodCallExpr mce) {
-        try {
-            return mce.resolve().getQualifiedSignature().split("::")[0];
-        } catch (Exception e) {
-            return "Unknown";
-        }
+        return callResolver.qualifiedSignature(mce)
+                .map(signature -> signature.split("::")[0])
+                .orElse("Unknown");
     }
 
     private String getEnclosingClassName(Node node) {
@@ -8,4 +8,11 @@ import java.util.Map;
 
 public interface VulnerabilityDetector {
     List<Vulnerability> detect(Node node, Map<String, Boolean> taintMap);
+
+    /**
+     * The nodes this detector can report on. Detectors that do not override this are offered every node.
+     */
+    default DetectorTargets targets() {
+        return DetectorTargets.ALL_NODES;
+    }
 }
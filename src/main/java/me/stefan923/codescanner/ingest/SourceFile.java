@@ -0,0 +1,85 @@
+package me.stefan923.codescanner.ingest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A source file read from disk exactly once. The raw bytes back the line count and content hash,
+ * and the decoded text is what gets handed to the parser.
+ */
+public class SourceFile {
+    /** Files at least this large are memory-mapped instead of copied onto the heap. */
+    static final long MAP_THRESHOLD = 1 << 20;
+
+    private final Path path;
+    private final ByteBuffer bytes;
+    private final int lineCount;
+    private String content;
+
+    private SourceFile(Path path, ByteBuffer bytes) {
+        this.path = path;
+        this.bytes = bytes.asReadOnlyBuffer();
+        this.lineCount = countLines(bytes);
+    }
+
+    public static SourceFile read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                return new SourceFile(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or the file ends early
+            }
+            buffer.flip();
+            return new SourceFile(path, buffer);
+        }
+    }
+
+    public Path getPath() { return path; }
+    public int getLineCount() { return lineCount; }
+
+    /**
+     * Returns a fresh read-only view of the raw bytes, positioned at the start of the file.
+     */
+    public ByteBuffer getBytes() {
+        return bytes.duplicate();
+    }
+
+    public String getContent() {
+        if (content == null) {
+            content = StandardCharsets.UTF_8.decode(getBytes()).toString();
+        }
+        return content;
+    }
+
+    /**
+     * Counts lines the way {@link java.util.Scanner#nextLine()} would: {@code \n}, {@code \r\n} and a lone
+     * {@code \r} each end a line, and a trailing line without a terminator still counts.
+     */
+    private static int countLines(ByteBuffer buffer) {
+        int lines = 0;
+        int limit = buffer.limit();
+        byte previous = '\n';
+        for (int i = buffer.position(); i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                if (previous != '\r') {
+                    lines++;
+                }
+            } else if (b == '\r') {
+                lines++;
+            }
+            previous = b;
+        }
+        if (limit > buffer.position() && previous != '\n' && previous != '\r') {
+            lines++;
+        }
+        return lines;
+    }
+}
@@ -1,60 +1,332 @@
 package me.stefan923.codescanner.metrics;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
 
 public class ScanMetrics {
-    private int filesScanned = 0;
-    private int filesWithErrors = 0;
-    private int filesWithVulnerabilities = 0;
-    private int totalLines = 0;
-    private long startTime;
-    private long endTime;
+    public static final int SLOWEST_FILES = 10;
+
+    /**
+     * Stages of a scan that time is attributed to. Times are summed over worker threads, so in a parallel scan
+     * they can add up to more than the elapsed time.
+     */
+    public enum Phase {
+        /** Reading source files, including the pre-filter's reads. */
+        READ,
+        /** Parsing the files being indexed and scanned. */
+        PARSE,
+        /** Resolving calls to index files into the call graph, and building the graph. */
+        RESOLVE,
+        /** Solving the taint flow of each scanned method. */
+        TAINT,
+        /** Running the detectors over method bodies, including following calls into callees' sources. */
+        DETECT,
+        /** Handing findings over to the caller, such as writing streamed output. */
+        OUTPUT
+    }
 
-    private final Map<String, Integer> vulnerabilityCounts = new HashMap<>();
+    private final AtomicInteger filesScanned = new AtomicInteger();
+    private final AtomicInteger filesWithErrors = new AtomicInteger();
+    private final AtomicInteger filesWithVulnerabilities = new AtomicInteger();
+    private final AtomicInteger filesFromCache = new AtomicInteger();
+    private final AtomicInteger filesSkipped = new AtomicInteger();
+    private final AtomicInteger totalLines = new AtomicInteger();
+    private final LongAdder taintCacheHits = new LongAdder();
+    private final LongAdder taintCacheMisses = new LongAdder();
+    private volatile int callGraphMethods;
+    private volatile int callGraphEdges;
+    private volatile int callGraphEntryPoints;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile long peakHeapBytes;
+    private final LongAdder[] phaseNanos = adders(Phase.values().length);
+    private final Map<String, LongAdder> detectorNanos = new ConcurrentHashMap<>();
+    private final LatencyHistogram fileLatencies = new LatencyHistogram();
+    // The slowest analyzed files, fastest first
+    private final PriorityQueue<FileLatency> slowestFiles =
+            new PriorityQueue<>(Comparator.comparingLong(FileLatency::nanos));
+
+    private final Map<String, Integer> vulnerabilityCounts = new ConcurrentHashMap<>();
 
     public void start() {
-        startTime = System.currentTimeMillis();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        startTime = System.nanoTime();
     }
 
     public void end() {
-        endTime = System.currentTimeMillis();
+        endTime = System.nanoTime();
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        peakHeapBytes = peak;
+    }
+
+    /**
+     * Clears every counter, for scanners that record several scans into the same instance.
+     */
+    public void reset() {
+        filesScanned.set(0);
+        filesWithErrors.set(0);
+        filesWithVulnerabilities.set(0);
+        filesFromCache.set(0);
+        filesSkipped.set(0);
+        totalLines.set(0);
+        taintCacheHits.reset();
+        taintCacheMisses.reset();
+        callGraphMethods = 0;
+        callGraphEdges = 0;
+        callGraphEntryPoints = 0;
+        startTime = 0;
+        endTime = 0;
+        peakHeapBytes = 0;
+        for (LongAdder nanos : phaseNanos) {
+            nanos.reset();
+        }
+        detectorNanos.clear();
+        fileLatencies.reset();
+        synchronized (slowestFiles) {
+            slowestFiles.clear();
+        }
+        vulnerabilityCounts.clear();
     }
 
     public void incrementFilesScanned() {
-        filesScanned++;
+        filesScanned.incrementAndGet();
     }
 
     public void incrementFilesWithErrors() {
-        filesWithErrors++;
+        filesWithErrors.incrementAndGet();
     }
 
     public void incrementFilesWithVulnerabilities() {
-        filesWithVulnerabilities++;
+        filesWithVulnerabilities.incrementAndGet();
+    }
+
+    public void incrementFilesFromCache() {
+        filesFromCache.incrementAndGet();
+    }
+
+    public void incrementFilesSkipped() {
+        filesSkipped.incrementAndGet();
+    }
+
+    public void incrementTaintCacheHits() {
+        taintCacheHits.increment();
+    }
+
+    public void incrementTaintCacheMisses() {
+        taintCacheMisses.increment();
+    }
+
+    public void recordCallGraph(int methods, int edges, int entryPoints) {
+        callGraphMethods = methods;
+        callGraphEdges = edges;
+        callGraphEntryPoints = entryPoints;
     }
 
     public void addLines(int lines) {
-        totalLines += lines;
+        totalLines.addAndGet(lines);
     }
 
     public void recordVulnerability(String type) {
         vulnerabilityCounts.merge(type, 1, Integer::sum);
     }
 
+    public void addPhaseTime(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+    }
+
+    /**
+     * Returns the consumer accumulating the time spent in the named detector, to be looked up once and fed
+     * the nanoseconds of every call.
+     */
+    public LongConsumer detectorTimer(String detector) {
+        return detectorNanos.computeIfAbsent(detector, name -> new LongAdder())::add;
+    }
+
+    /**
+     * Records how long analyzing {@code file} took, from reading it to the end of its analysis.
+     */
+    public void recordFileLatency(String file, long nanos) {
+        fileLatencies.record(nanos);
+        synchronized (slowestFiles) {
+            if (slowestFiles.size() < SLOWEST_FILES) {
+                slowestFiles.add(new FileLatency(file, nanos));
+            } else if (slowestFiles.peek().nanos() < nanos) {
+                slowestFiles.poll();
+                slowestFiles.add(new FileLatency(file, nanos));
+            }
+        }
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    /**
+     * Returns the cumulative time of each detector, by detector class name.
+     */
+    public Map<String, Long> getDetectorNanos() {
+        Map<String, Long> nanos = new TreeMap<>();
+        detectorNanos.forEach((detector, sum) -> nanos.put(detector, sum.sum()));
+        return nanos;
+    }
+
+    public LatencyHistogram getFileLatencies() {
+        return fileLatencies;
+    }
+
+    /**
+     * Returns the slowest analyzed files, slowest first.
+     */
+    public List<FileLatency> getSlowestFiles() {
+        List<FileLatency> slowest;
+        synchronized (slowestFiles) {
+            slowest = new ArrayList<>(slowestFiles);
+        }
+        slowest.sort(Comparator.comparingLong(FileLatency::nanos).reversed());
+        return slowest;
+    }
+
+    /**
+     * Returns the number of files parsed and analyzed, as opposed to served from a cache or skipped.
+     */
+    public int getFilesAnalyzed() {
+        return filesScanned.get() - filesFromCache.get() - filesSkipped.get();
+    }
+
     public long getElapsedTimeMillis() {
-        return endTime - startTime;
+        return (endTime - startTime) / 1_000_000;
+    }
+
+    /**
+     * Returns the heap used at the peak between {@link #start()} and {@link #end()}, as the sum of each heap
+     * pool's own peak. The pools peak at different times, so this is an upper bound, which is what sizing a
+     * heap or container needs. Peaks are tracked per JVM, so concurrent scans are counted together.
+     */
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
     }
 
     public void printSummary() {
-        System.out.println("\n--- Scan Summary ---");
-        System.out.println("Files scanned: " + filesScanned);
-        System.out.println("Files with vulnerabilities: " + filesWithVulnerabilities);
-        System.out.println("Files with parsing errors: " + filesWithErrors);
-        System.out.println("Total lines of code: " + totalLines);
-        System.out.println("Scan time (ms): " + getElapsedTimeMillis());
-        System.out.println("Vulnerabilities found: " + vulnerabilityCounts.values().stream().mapToInt(i -> i).sum());
-        System.out.println("Breakdown by type:");
+        printSummary(System.out);
+    }
+
+    public void printSummary(PrintStream out) {
+        out.println("\n--- Scan Summary ---");
+        out.println("Files scanned: " + filesScanned.get());
+        out.println("Files with vulnerabilities: " + filesWithVulnerabilities.get());
+        out.println("Files with parsing errors: " + filesWithErrors.get());
+        out.println("Files served from cache: " + filesFromCache.get());
+        out.println("Files skipped by pre-filter: " + filesSkipped.get());
+        out.println("Taint cache: " + taintCacheHits.sum() + " hits, " + taintCacheMisses.sum() + " misses");
+        out.println("Call graph: " + callGraphMethods + " methods, " + callGraphEdges + " call edges, "
+                + callGraphEntryPoints + " entry points");
+        out.println("Total lines of code: " + totalLines.get());
+        out.println("Scan time (ms): " + getElapsedTimeMillis());
+        out.println("Peak heap (MB): " + peakHeapBytes / (1024 * 1024) + " of "
+                + Runtime.getRuntime().maxMemory() / (1024 * 1024) + " max");
+        out.println("Phase times (ms):");
+        for (Phase phase : Phase.values()) {
+            out.println(" - " + phase.name().toLowerCase(Locale.ROOT) + ": " + millis(getPhaseNanos(phase)));
+        }
+        out.println("Detector times (ms):");
+        getDetectorNanos().forEach((detector, nanos) -> out.println(" - " + detector + ": " + millis(nanos)));
+        out.println("File latency (ms): p50 " + millis(fileLatencies.getPercentile(50))
+                + ", p95 " + millis(fileLatencies.getPercentile(95))
+                + ", p99 " + millis(fileLatencies.getPercentile(99))
+                + ", max " + millis(fileLatencies.getMax())
+                + " over " + fileLatencies.getCount() + " files");
+        out.println("Slowest files (ms):");
+        getSlowestFiles().forEach(file -> out.println(" - " + file.file() + ": " + millis(file.nanos())));
+        out.println("Vulnerabilities found: " + vulnerabilityCounts.values().stream().mapToInt(i -> i).sum());
+        out.println("Breakdown by type:");
         vulnerabilityCounts.forEach((type, count) ->
-                System.out.println(" - " + type + ": " + count));
+                out.println(" - " + type + ": " + count));
+    }
+
+    /**
+     * Returns everything {@link #printSummary()} shows as a JSON object, with durations in nanoseconds.
+     */
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("filesScanned", filesScanned.get());
+        json.addProperty("filesWithVulnerabilities", filesWithVulnerabilities.get());
+        json.addProperty("filesWithErrors", filesWithErrors.get());
+        json.addProperty("filesFromCache", filesFromCache.get());
+        json.addProperty("filesSkipped", filesSkipped.get());
+        json.addProperty("taintCacheHits", taintCacheHits.sum());
+        json.addProperty("taintCacheMisses", taintCacheMisses.sum());
+        JsonObject callGraph = new JsonObject();
+        callGraph.addProperty("methods", callGraphMethods);
+        callGraph.addProperty("edges", callGraphEdges);
+        callGraph.addProperty("entryPoints", callGraphEntryPoints);
+        json.add("callGraph", callGraph);
+        json.addProperty("totalLines", totalLines.get());
+        json.addProperty("elapsedNanos", endTime - startTime);
+        json.addProperty("peakHeapBytes", peakHeapBytes);
+        json.addProperty("maxHeapBytes", Runtime.getRuntime().maxMemory());
+
+        JsonObject phases = new JsonObject();
+        for (Phase phase : Phase.values()) {
+            phases.addProperty(phase.name().toLowerCase(Locale.ROOT), getPhaseNanos(phase));
+        }
+        json.add("phaseNanos", phases);
+        JsonObject detectors = new JsonObject();
+        getDetectorNanos().forEach(detectors::addProperty);
+        json.add("detectorNanos", detectors);
+
+        JsonObject latency = new JsonObject();
+        latency.addProperty("count", fileLatencies.getCount());
+        latency.addProperty("p50", fileLatencies.getPercentile(50));
+        latency.addProperty("p95", fileLatencies.getPercentile(95));
+        latency.addProperty("p99", fileLatencies.getPercentile(99));
+        latency.addProperty("max", fileLatencies.getMax());
+        json.add("fileLatencyNanos", latency);
+        JsonArray slowest = new JsonArray();
+        for (FileLatency file : getSlowestFiles()) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("file", file.file());
+            entry.addProperty("nanos", file.nanos());
+            slowest.add(entry);
+        }
+        json.add("slowestFiles", slowest);
+
+        JsonObject vulnerabilities = new JsonObject();
+        vulnerabilityCounts.forEach(vulnerabilities::addProperty);
+        json.add("vulnerabilities", vulnerabilities);
+        return json;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    public record FileLatency(String file, long nanos) {
     }
 }
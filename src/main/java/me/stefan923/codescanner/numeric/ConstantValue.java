@@ -0,0 +1,100 @@
+package me.stefan923.codescanner.numeric;
+
+import java.math.BigInteger;
+
+/**
+ * Exact integer constant. Arithmetic runs on {@code long} with {@link Math#addExact} and friends, and only
+ * switches to {@link BigInteger} for results outside the {@code long} range.
+ */
+public final class ConstantValue {
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    private final long value;
+    // Only set when the value does not fit in a long
+    private final BigInteger big;
+
+    private ConstantValue(long value, BigInteger big) {
+        this.value = value;
+        this.big = big;
+    }
+
+    public static ConstantValue of(long value) {
+        return new ConstantValue(value, null);
+    }
+
+    public static ConstantValue of(BigInteger value) {
+        if (value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0) {
+            return of(value.longValue());
+        }
+        return new ConstantValue(0, value);
+    }
+
+    public ConstantValue add(ConstantValue other) {
+        if (big == null && other.big == null) {
+            try {
+                return of(Math.addExact(value, other.value));
+            } catch (ArithmeticException e) {
+                // Falls through to the exact path
+            }
+        }
+        return of(toBigInteger().add(other.toBigInteger()));
+    }
+
+    public ConstantValue subtract(ConstantValue other) {
+        if (big == null && other.big == null) {
+            try {
+                return of(Math.subtractExact(value, other.value));
+            } catch (ArithmeticException e) {
+                // Falls through to the exact path
+            }
+        }
+        return of(toBigInteger().subtract(other.toBigInteger()));
+    }
+
+    public ConstantValue multiply(ConstantValue other) {
+        if (big == null && other.big == null) {
+            try {
+                return of(Math.multiplyExact(value, other.value));
+            } catch (ArithmeticException e) {
+                // Falls through to the exact path
+            }
+        }
+        return of(toBigInteger().multiply(other.toBigInteger()));
+    }
+
+    public int compareTo(long other) {
+        return big == null ? Long.compare(value, other) : big.signum();
+    }
+
+    public boolean fitsInLong() {
+        return big == null;
+    }
+
+    /**
+     * The value as a long; only meaningful if {@link #fitsInLong()}.
+     */
+    public long longValue() {
+        return value;
+    }
+
+    public BigInteger toBigInteger() {
+        return big != null ? big : BigInteger.valueOf(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ConstantValue other && value == other.value
+                && (big == null ? other.big == null : big.equals(other.big));
+    }
+
+    @Override
+    public int hashCode() {
+        return big != null ? big.hashCode() : Long.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return big != null ? big.toString() : Long.toString(value);
+    }
+}
@@ -0,0 +1,196 @@
+package me.stefan923.codescanner.numeric;
+
+/**
+ * Closed range {@code [lo, hi]} of integer values. {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE} stand for
+ * the infinite bounds; arithmetic saturates to them instead of wrapping, so every result contains the exact
+ * values of the operation on the operands' ranges.
+ */
+public final class Interval {
+    public static final long NEG_INF = Long.MIN_VALUE;
+    public static final long POS_INF = Long.MAX_VALUE;
+
+    public static final Interval UNBOUNDED = new Interval(NEG_INF, POS_INF);
+    public static final Interval INT = new Interval(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    public static final Interval SHORT = new Interval(Short.MIN_VALUE, Short.MAX_VALUE);
+    public static final Interval BYTE = new Interval(Byte.MIN_VALUE, Byte.MAX_VALUE);
+    public static final Interval CHAR = new Interval(Character.MIN_VALUE, Character.MAX_VALUE);
+    public static final Interval LENGTH = new Interval(0, Integer.MAX_VALUE);
+
+    private final long lo;
+    private final long hi;
+
+    private Interval(long lo, long hi) {
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    /**
+     * Returns {@code [lo, hi]}, or {@code null} if the range is empty.
+     */
+    public static Interval of(long lo, long hi) {
+        return lo <= hi ? new Interval(lo, hi) : null;
+    }
+
+    public static Interval constant(long value) {
+        return new Interval(value, value);
+    }
+
+    public long lo() {
+        return lo;
+    }
+
+    public long hi() {
+        return hi;
+    }
+
+    public boolean isConstant() {
+        return lo == hi && lo != NEG_INF && hi != POS_INF;
+    }
+
+    public boolean contains(Interval other) {
+        return lo <= other.lo && other.hi <= hi;
+    }
+
+    public Interval add(Interval other) {
+        return new Interval(addLower(lo, other.lo), addUpper(hi, other.hi));
+    }
+
+    public Interval subtract(Interval other) {
+        return add(other.negate());
+    }
+
+    public Interval multiply(Interval other) {
+        long a = multiply(lo, other.lo);
+        long b = multiply(lo, other.hi);
+        long c = multiply(hi, other.lo);
+        long d = multiply(hi, other.hi);
+        return new Interval(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+    }
+
+    /**
+     * Integer division; only a constant, non-zero divisor gives a bounded result.
+     */
+    public Interval divide(Interval other) {
+        if (!other.isConstant() || other.lo == 0) {
+            return UNBOUNDED;
+        }
+        long divisor = other.lo;
+        long a = divide(lo, divisor);
+        long b = divide(hi, divisor);
+        return new Interval(Math.min(a, b), Math.max(a, b));
+    }
+
+    /**
+     * Remainder; the result takes the sign of the dividend and is smaller in magnitude than a constant divisor.
+     */
+    public Interval remainder(Interval other) {
+        if (!other.isConstant() || other.lo == 0) {
+            return UNBOUNDED;
+        }
+        long bound = Math.abs(other.lo) - 1;
+        if (lo >= 0) {
+            return new Interval(0, Math.min(bound, hi));
+        }
+        if (hi <= 0) {
+            return new Interval(Math.max(-bound, lo), 0);
+        }
+        return new Interval(-bound, bound);
+    }
+
+    public Interval negate() {
+        return new Interval(negate(hi), negate(lo));
+    }
+
+    public Interval join(Interval other) {
+        return new Interval(Math.min(lo, other.lo), Math.max(hi, other.hi));
+    }
+
+    /**
+     * Returns the intersection, or {@code null} if the ranges are disjoint.
+     */
+    public Interval meet(Interval other) {
+        return of(Math.max(lo, other.lo), Math.min(hi, other.hi));
+    }
+
+    /**
+     * Joins {@code next} into this range, sending every bound that is still moving to infinity so that
+     * loops reach a fixed point in a bounded number of steps.
+     */
+    public Interval widen(Interval next) {
+        return new Interval(next.lo < lo ? NEG_INF : lo, next.hi > hi ? POS_INF : hi);
+    }
+
+    private static long addLower(long a, long b) {
+        if (a == NEG_INF || b == NEG_INF) {
+            return NEG_INF;
+        }
+        return saturatedAdd(a, b);
+    }
+
+    private static long addUpper(long a, long b) {
+        if (a == POS_INF || b == POS_INF) {
+            return POS_INF;
+        }
+        return saturatedAdd(a, b);
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        try {
+            return Math.addExact(a, b);
+        } catch (ArithmeticException e) {
+            return a > 0 ? POS_INF : NEG_INF;
+        }
+    }
+
+    private static long multiply(long a, long b) {
+        if (a == 0 || b == 0) {
+            return 0;
+        }
+        boolean positive = (a > 0) == (b > 0);
+        if (isInfinite(a) || isInfinite(b)) {
+            return positive ? POS_INF : NEG_INF;
+        }
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            return positive ? POS_INF : NEG_INF;
+        }
+    }
+
+    private static long divide(long a, long divisor) {
+        if (isInfinite(a)) {
+            return (a > 0) == (divisor > 0) ? POS_INF : NEG_INF;
+        }
+        return a / divisor;
+    }
+
+    private static long negate(long a) {
+        if (a == NEG_INF) {
+            return POS_INF;
+        }
+        if (a == POS_INF) {
+            return NEG_INF;
+        }
+        return -a;
+    }
+
+    private static boolean isInfinite(long a) {
+        return a == NEG_INF || a == POS_INF;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Interval other && lo == other.lo && hi == other.hi;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(lo) * 31 + Long.hashCode(hi);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + (lo == NEG_INF ? "-inf" : Long.toString(lo)) + ", "
+                + (hi == POS_INF ? "+inf" : Long.toString(hi)) + "]";
+    }
+}
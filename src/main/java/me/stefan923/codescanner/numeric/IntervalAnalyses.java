@@ -0,0 +1,31 @@
+package me.stefan923.codescanner.numeric;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Hands out one {@link IntervalAnalysis} per method, so the detectors sharing an instance analyze each method
+ * once. Holds the analyses of one file at a time, until {@link #clear()}; not thread-safe.
+ */
+public class IntervalAnalyses {
+    private final Map<MethodDeclaration, IntervalAnalysis> analyses = new IdentityHashMap<>();
+
+    public void clear() {
+        analyses.clear();
+    }
+
+    /**
+     * Returns the analysis of the method enclosing {@code node}, or an empty one outside methods.
+     */
+    public IntervalAnalysis forNode(Node node) {
+        for (Node parent = node.getParentNode().orElse(null); parent != null; parent = parent.getParentNode().orElse(null)) {
+            if (parent instanceof MethodDeclaration md) {
+                return analyses.computeIfAbsent(md, IntervalAnalysis::of);
+            }
+        }
+        return IntervalAnalysis.empty();
+    }
+}
@@ -0,0 +1,713 @@
+package me.stefan923.codescanner.numeric;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import me.stefan923.codescanner.taint.ControlFlowGraph;
+
+import java.util.*;
+
+/**
+ * Value ranges of the integer local variables and lengths of the array local variables of one method, computed by
+ * forward abstract interpretation over its {@link ControlFlowGraph}.
+ * <p>
+ * Each node's entry state is the join of its predecessors' exit states, refined on either branch of a comparison
+ * against a variable. States entering a loop head are widened, so every loop stabilizes after a few visits; one
+ * descending pass afterwards recovers the bounds that widening gave up, such as a counter's value after its loop.
+ * Variables are identified by name, which Java keeps unique among the locals in scope. A variable with no range
+ * in a state may hold any value of its declared type; parameters start out that way. Values stored into a
+ * variable that exceed its type wrap around, so they widen to the whole type.
+ */
+public final class IntervalAnalysis {
+    public static final int MAX_VISITS_PER_NODE = 32;
+
+    private static final IntervalAnalysis EMPTY = new IntervalAnalysis(null, Map.of(), Set.of(), null);
+    private static final State UNKNOWN = new State(Map.of(), Map.of());
+
+    private final ControlFlowGraph cfg;
+    // Declared range of every integer local; names declared with conflicting types are in neither collection
+    private final Map<String, Interval> integers;
+    // Locals known to hold no integer, arrays included
+    private final Set<String> nonIntegers;
+    private final State[] states;
+    private final Map<Expression, Interval> values = new IdentityHashMap<>();
+
+    private IntervalAnalysis(ControlFlowGraph cfg, Map<String, Interval> integers, Set<String> nonIntegers,
+                             State[] states) {
+        this.cfg = cfg;
+        this.integers = integers;
+        this.nonIntegers = nonIntegers;
+        this.states = states;
+    }
+
+    public static IntervalAnalysis empty() {
+        return EMPTY;
+    }
+
+    public static IntervalAnalysis of(MethodDeclaration md) {
+        if (md.getBody().isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, Interval> integers = new HashMap<>();
+        Set<String> nonIntegers = new HashSet<>();
+        Set<String> conflicting = new HashSet<>();
+        for (Parameter parameter : md.findAll(Parameter.class)) {
+            declare(parameter.getNameAsString(), parameter.isVarArgs() ? null : typeRange(parameter.getType()),
+                    integers, nonIntegers, conflicting);
+        }
+        for (VariableDeclarator var : md.findAll(VariableDeclarator.class)) {
+            declare(var.getNameAsString(), typeRange(var.getType()), integers, nonIntegers, conflicting);
+        }
+
+        ControlFlowGraph cfg = ControlFlowGraph.build(md);
+        IntervalAnalysis analysis = new IntervalAnalysis(cfg, integers, nonIntegers, new State[cfg.size()]);
+        analysis.solve();
+        return analysis;
+    }
+
+    /**
+     * Returns the range of {@code expr} where it is evaluated, or {@code null} if it is not an integer. Expressions
+     * whose type is unknown, such as fields and most method results, may hold any value.
+     */
+    public Interval valueOf(Expression expr) {
+        if (values.containsKey(expr)) {
+            return values.get(expr);
+        }
+        return evaluate(expr, stateAt(expr), values);
+    }
+
+    /**
+     * Returns the range of lengths of the array {@code expr} evaluates to, or {@code null} if it is unknown.
+     */
+    public Interval lengthOf(Expression expr) {
+        return lengthOf(expr, stateAt(expr));
+    }
+
+    /**
+     * Treats a {@code +} as string concatenation if a string literal occurs anywhere along the chain of
+     * {@code +} operators to its left. Walked iteratively; generated chains can be thousands of operands long.
+     */
+    public static boolean isStringConcatenation(BinaryExpr bin) {
+        Expression current = bin;
+        while (current instanceof BinaryExpr link && link.getOperator() == BinaryExpr.Operator.PLUS) {
+            if (isStringLiteral(link.getRight())) {
+                return true;
+            }
+            current = link.getLeft();
+        }
+        return isStringLiteral(current);
+    }
+
+    private void solve() {
+        int[] order = cfg.reversePostorder();
+        int[] rank = new int[cfg.size()];
+        for (int i = 0; i < order.length; i++) {
+            rank[order[i]] = i;
+        }
+        boolean[] loopHead = new boolean[cfg.size()];
+        for (int node : order) {
+            for (int successor : cfg.successors(node)) {
+                loopHead[successor] |= rank[successor] <= rank[node];
+            }
+        }
+
+        states[ControlFlowGraph.ENTRY] = UNKNOWN;
+        BitSet pending = new BitSet(order.length);
+        pending.set(rank[ControlFlowGraph.ENTRY]);
+        long budget = (long) order.length * MAX_VISITS_PER_NODE;
+        boolean stable = true;
+        for (int next = pending.nextSetBit(0); next >= 0; next = pending.nextSetBit(0)) {
+            if (budget-- == 0) {
+                stable = false;
+                break;
+            }
+            pending.clear(next);
+            int node = order[next];
+            State out = transfer(node, states[node]);
+            if (out == null) {
+                continue;
+            }
+            for (int successor : cfg.successors(node)) {
+                State old = states[successor];
+                State merged = old == null ? out : loopHead[successor] ? old.widen(out) : old.join(out);
+                if (!merged.equals(old)) {
+                    states[successor] = merged;
+                    pending.set(rank[successor]);
+                }
+            }
+        }
+        if (stable) {
+            narrow(order);
+        }
+    }
+
+    /**
+     * Recomputes every state from its predecessors once. Starting from a fixed point, the result still holds on
+     * every path but no longer carries the infinite bounds widening introduced where a loop condition limits them.
+     */
+    private void narrow(int[] order) {
+        State[] outs = new State[cfg.size()];
+        for (int node : order) {
+            outs[node] = states[node] != null ? transfer(node, states[node]) : null;
+        }
+        State[] narrowed = new State[cfg.size()];
+        narrowed[ControlFlowGraph.ENTRY] = states[ControlFlowGraph.ENTRY];
+        for (int node : order) {
+            if (outs[node] == null) {
+                continue;
+            }
+            for (int successor : cfg.successors(node)) {
+                if (successor != ControlFlowGraph.ENTRY) {
+                    narrowed[successor] = narrowed[successor] == null
+                            ? outs[node] : narrowed[successor].join(outs[node]);
+                }
+            }
+        }
+        System.arraycopy(narrowed, 0, states, 0, states.length);
+    }
+
+    /**
+     * Returns the state after {@code node}, or {@code null} if the node's condition cannot hold.
+     */
+    private State transfer(int node, State in) {
+        ControlFlowGraph.Assumption assumption = cfg.assumption(node);
+        if (assumption != null) {
+            return assume(assumption.condition(), assumption.holds(), in);
+        }
+        Node astNode = cfg.node(node);
+        if (astNode == null || astNode instanceof CatchClause) {
+            return in;
+        }
+        State out = in.copy();
+        Transfer transfer = new Transfer();
+        if (astNode instanceof ForEachStmt forEach) {
+            forEach.getIterable().accept(transfer, out);
+            forEach.getVariable().getVariables().forEach(var -> out.forget(var.getNameAsString()));
+        } else {
+            astNode.accept(transfer, out);
+        }
+        return out;
+    }
+
+    private State assume(Expression condition, boolean holds, State state) {
+        if (state == null) {
+            return null;
+        }
+        if (condition instanceof EnclosedExpr enclosed) {
+            return assume(enclosed.getInner(), holds, state);
+        }
+        if (condition instanceof UnaryExpr unary && unary.getOperator() == UnaryExpr.Operator.LOGICAL_COMPLEMENT) {
+            return assume(unary.getExpression(), !holds, state);
+        }
+        if (condition instanceof BooleanLiteralExpr literal) {
+            return literal.getValue() == holds ? state : null;
+        }
+        if (!(condition instanceof BinaryExpr bin)) {
+            return state;
+        }
+        Expression left = bin.getLeft();
+        Expression right = bin.getRight();
+        switch (bin.getOperator()) {
+            case AND:
+                return holds
+                        ? assume(right, true, assume(left, true, state))
+                        : State.join(assume(left, false, state), assume(right, false, assume(left, true, state)));
+            case OR:
+                return holds
+                        ? State.join(assume(left, true, state), assume(right, true, assume(left, false, state)))
+                        : assume(right, false, assume(left, false, state));
+            case LESS:
+            case LESS_EQUALS:
+            case GREATER:
+            case GREATER_EQUALS:
+            case EQUALS:
+            case NOT_EQUALS:
+                BinaryExpr.Operator op = holds ? bin.getOperator() : negate(bin.getOperator());
+                Interval leftValue = evaluate(left, state, null);
+                Interval rightValue = evaluate(right, state, null);
+                State refined = refine(left, op, rightValue, state);
+                return refined == null ? null : refine(right, mirror(op), leftValue, refined);
+            default:
+                return state;
+        }
+    }
+
+    /**
+     * Narrows the variable {@code side} names, if any, to the values for which {@code side op other} holds.
+     */
+    private State refine(Expression side, BinaryExpr.Operator op, Interval other, State state) {
+        while (side instanceof EnclosedExpr enclosed) {
+            side = enclosed.getInner();
+        }
+        if (other == null || !side.isNameExpr() || !integers.containsKey(side.asNameExpr().getNameAsString())) {
+            return state;
+        }
+        String name = side.asNameExpr().getNameAsString();
+        Interval current = variable(name, state);
+        Interval refined = switch (op) {
+            case LESS -> current.meet(Interval.of(Interval.NEG_INF, other.add(Interval.constant(-1)).hi()));
+            case LESS_EQUALS -> current.meet(Interval.of(Interval.NEG_INF, other.hi()));
+            case GREATER -> current.meet(Interval.of(other.add(Interval.constant(1)).lo(), Interval.POS_INF));
+            case GREATER_EQUALS -> current.meet(Interval.of(other.lo(), Interval.POS_INF));
+            case EQUALS -> current.meet(other);
+            case NOT_EQUALS -> excludeBound(current, other);
+            default -> current;
+        };
+        if (refined == null) {
+            return null;
+        }
+        if (refined.equals(current)) {
+            return state;
+        }
+        State result = state.copy();
+        result.values.put(name, refined);
+        return result;
+    }
+
+    private static Interval excludeBound(Interval current, Interval excluded) {
+        if (!excluded.isConstant()) {
+            return current;
+        }
+        long value = excluded.lo();
+        if (current.lo() == value) {
+            return Interval.of(value + 1, current.hi());
+        }
+        if (current.hi() == value) {
+            return Interval.of(current.lo(), value - 1);
+        }
+        return current;
+    }
+
+    private static BinaryExpr.Operator negate(BinaryExpr.Operator op) {
+        return switch (op) {
+            case LESS -> BinaryExpr.Operator.GREATER_EQUALS;
+            case LESS_EQUALS -> BinaryExpr.Operator.GREATER;
+            case GREATER -> BinaryExpr.Operator.LESS_EQUALS;
+            case GREATER_EQUALS -> BinaryExpr.Operator.LESS;
+            case EQUALS -> BinaryExpr.Operator.NOT_EQUALS;
+            case NOT_EQUALS -> BinaryExpr.Operator.EQUALS;
+            default -> op;
+        };
+    }
+
+    private static BinaryExpr.Operator mirror(BinaryExpr.Operator op) {
+        return switch (op) {
+            case LESS -> BinaryExpr.Operator.GREATER;
+            case LESS_EQUALS -> BinaryExpr.Operator.GREATER_EQUALS;
+            case GREATER -> BinaryExpr.Operator.LESS;
+            case GREATER_EQUALS -> BinaryExpr.Operator.LESS_EQUALS;
+            default -> op;
+        };
+    }
+
+    /**
+     * Evaluates {@code expr} in {@code state}. Results along left-deep chains are recorded in {@code memo}, if
+     * given, so that queries for the operands of a chain cost nothing more.
+     */
+    private Interval evaluate(Expression expr, State state, Map<Expression, Interval> memo) {
+        if (expr instanceof BinaryExpr bin && isStringConcatenation(bin)) {
+            return null;
+        }
+        // Left-deep chains are evaluated bottom-up without recursing down the left spine
+        Deque<BinaryExpr> chain = new ArrayDeque<>();
+        Expression leftmost = expr;
+        while (leftmost instanceof BinaryExpr bin && (memo == null || !memo.containsKey(bin))) {
+            chain.push(bin);
+            leftmost = bin.getLeft();
+        }
+        Interval result = memo != null && memo.containsKey(leftmost)
+                ? memo.get(leftmost) : evaluateOperand(leftmost, state, memo);
+        while (!chain.isEmpty()) {
+            BinaryExpr bin = chain.pop();
+            result = apply(bin.getOperator(), result, evaluate(bin.getRight(), state, memo));
+            if (memo != null) {
+                memo.put(bin, result);
+            }
+        }
+        if (memo != null) {
+            memo.put(expr, result);
+        }
+        return result;
+    }
+
+    private static Interval apply(BinaryExpr.Operator op, Interval left, Interval right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        return switch (op) {
+            case PLUS -> left.add(right);
+            case MINUS -> left.subtract(right);
+            case MULTIPLY -> left.multiply(right);
+            case DIVIDE -> left.divide(right);
+            case REMAINDER -> left.remainder(right);
+            case BINARY_AND -> left.lo() >= 0 || right.lo() >= 0
+                    ? Interval.of(0, Math.min(left.lo() >= 0 ? left.hi() : Interval.POS_INF,
+                            right.lo() >= 0 ? right.hi() : Interval.POS_INF))
+                    : Interval.UNBOUNDED;
+            case BINARY_OR, XOR, LEFT_SHIFT, SIGNED_RIGHT_SHIFT, UNSIGNED_RIGHT_SHIFT -> Interval.UNBOUNDED;
+            default -> null;
+        };
+    }
+
+    private Interval evaluateOperand(Expression expr, State state, Map<Expression, Interval> memo) {
+        if (expr.isIntegerLiteralExpr() || expr.isLongLiteralExpr()) {
+            try {
+                Number value = expr.isIntegerLiteralExpr()
+                        ? expr.asIntegerLiteralExpr().asNumber() : expr.asLongLiteralExpr().asNumber();
+                return value instanceof Integer || value instanceof Long
+                        ? Interval.constant(value.longValue()) : Interval.UNBOUNDED;
+            } catch (NumberFormatException e) {
+                return Interval.UNBOUNDED;
+            }
+        }
+        if (expr.isCharLiteralExpr()) {
+            try {
+                return Interval.constant(expr.asCharLiteralExpr().asChar());
+            } catch (RuntimeException e) {
+                return Interval.CHAR;
+            }
+        }
+        if (expr.isLiteralExpr() || expr.isObjectCreationExpr() || expr.isArrayCreationExpr()
+                || expr.isArrayInitializerExpr() || expr.isLambdaExpr() || expr.isMethodReferenceExpr()
+                || expr.isInstanceOfExpr() || expr.isClassExpr()) {
+            // Remaining literals are strings, text blocks, booleans, floating point and null
+            return null;
+        }
+        if (expr.isNameExpr()) {
+            String name = expr.asNameExpr().getNameAsString();
+            if (integers.containsKey(name)) {
+                return variable(name, state);
+            }
+            return nonIntegers.contains(name) ? null : Interval.UNBOUNDED;
+        }
+        if (expr instanceof EnclosedExpr enclosed) {
+            return evaluate(enclosed.getInner(), state, memo);
+        }
+        if (expr instanceof UnaryExpr unary) {
+            Interval operand = evaluate(unary.getExpression(), state, memo);
+            if (operand == null) {
+                return null;
+            }
+            return switch (unary.getOperator()) {
+                case PLUS, POSTFIX_INCREMENT, POSTFIX_DECREMENT -> operand;
+                case MINUS -> operand.negate();
+                case PREFIX_INCREMENT -> operand.add(Interval.constant(1));
+                case PREFIX_DECREMENT -> operand.add(Interval.constant(-1));
+                case BITWISE_COMPLEMENT -> operand.negate().add(Interval.constant(-1));
+                case LOGICAL_COMPLEMENT -> null;
+            };
+        }
+        if (expr instanceof CastExpr cast) {
+            Interval target = typeRange(cast.getType());
+            if (target == null) {
+                return null;
+            }
+            Interval operand = evaluate(cast.getExpression(), state, memo);
+            return operand != null && target.contains(operand) ? operand : target;
+        }
+        if (expr instanceof ConditionalExpr conditional) {
+            Interval thenValue = evaluate(conditional.getThenExpr(), state, memo);
+            Interval elseValue = evaluate(conditional.getElseExpr(), state, memo);
+            return thenValue != null && elseValue != null ? thenValue.join(elseValue) : null;
+        }
+        if (expr instanceof AssignExpr assign && assign.getOperator() == AssignExpr.Operator.ASSIGN) {
+            return evaluate(assign.getValue(), state, memo);
+        }
+        if (expr instanceof FieldAccessExpr field) {
+            return fieldValue(field, state);
+        }
+        if (expr instanceof MethodCallExpr call) {
+            return callValue(call, state, memo);
+        }
+        return Interval.UNBOUNDED;
+    }
+
+    private Interval fieldValue(FieldAccessExpr field, State state) {
+        String name = field.getNameAsString();
+        if (name.equals("length")) {
+            Interval length = lengthOf(field.getScope(), state);
+            return length != null ? length : Interval.LENGTH;
+        }
+        String scope = field.getScope().toString();
+        Interval type = switch (scope) {
+            case "Integer" -> Interval.INT;
+            case "Long" -> Interval.UNBOUNDED;
+            case "Short" -> Interval.SHORT;
+            case "Byte" -> Interval.BYTE;
+            case "Character" -> Interval.CHAR;
+            default -> null;
+        };
+        // The long extremes would read as infinite bounds, so they are kept one step inside
+        if (type != null && name.equals("MAX_VALUE")) {
+            return Interval.constant(scope.equals("Long") ? Long.MAX_VALUE - 1 : type.hi());
+        }
+        if (type != null && name.equals("MIN_VALUE")) {
+            return Interval.constant(scope.equals("Long") ? Long.MIN_VALUE + 1 : type.lo());
+        }
+        return Interval.UNBOUNDED;
+    }
+
+    private Interval callValue(MethodCallExpr call, State state, Map<Expression, Interval> memo) {
+        String name = call.getNameAsString();
+        String scope = call.getScope().map(Expression::toString).orElse("");
+        if (call.getArguments().isEmpty() && (name.equals("length") || name.equals("size"))) {
+            return Interval.LENGTH;
+        }
+        if (scope.equals("Integer") && (name.equals("parseInt") || name.equals("valueOf"))
+                || name.equals("intValue") || name.equals("hashCode")) {
+            return Interval.INT;
+        }
+        if (scope.equals("Math") && call.getArguments().size() == 2
+                && (name.equals("min") || name.equals("max"))) {
+            Interval a = evaluate(call.getArgument(0), state, memo);
+            Interval b = evaluate(call.getArgument(1), state, memo);
+            if (a == null || b == null) {
+                return Interval.UNBOUNDED;
+            }
+            return name.equals("min")
+                    ? Interval.of(Math.min(a.lo(), b.lo()), Math.min(a.hi(), b.hi()))
+                    : Interval.of(Math.max(a.lo(), b.lo()), Math.max(a.hi(), b.hi()));
+        }
+        return Interval.UNBOUNDED;
+    }
+
+    private Interval lengthOf(Expression expr, State state) {
+        if (expr.isNameExpr()) {
+            return state.lengths.get(expr.asNameExpr().getNameAsString());
+        }
+        return arrayLength(expr, state);
+    }
+
+    private Interval arrayLength(Expression expr, State state) {
+        if (expr instanceof ArrayCreationExpr creation) {
+            if (creation.getInitializer().isPresent()) {
+                return Interval.constant(creation.getInitializer().get().getValues().size());
+            }
+            return creation.getLevels().get(0).getDimension()
+                    .map(dimension -> evaluate(dimension, state, null))
+                    .map(dimension -> dimension.meet(Interval.LENGTH))
+                    .orElse(null);
+        }
+        if (expr instanceof ArrayInitializerExpr initializer) {
+            return Interval.constant(initializer.getValues().size());
+        }
+        return null;
+    }
+
+    private Interval variable(String name, State state) {
+        Interval value = state.values.get(name);
+        return value != null ? value : integers.get(name);
+    }
+
+    private State stateAt(Node node) {
+        if (cfg == null) {
+            return UNKNOWN;
+        }
+        int id = cfg.nodeOf(node);
+        return id >= 0 && states[id] != null ? states[id] : UNKNOWN;
+    }
+
+    private static void declare(String name, Interval range, Map<String, Interval> integers,
+                                Set<String> nonIntegers, Set<String> conflicting) {
+        if (conflicting.contains(name)) {
+            return;
+        }
+        Interval declared = integers.get(name);
+        boolean known = declared != null || nonIntegers.contains(name);
+        if (!known) {
+            if (range != null) {
+                integers.put(name, range);
+            } else {
+                nonIntegers.add(name);
+            }
+        } else if (range == null ? declared != null : !range.equals(declared)) {
+            integers.remove(name);
+            nonIntegers.remove(name);
+            conflicting.add(name);
+        }
+    }
+
+    /**
+     * Returns the range of an integer type, or {@code null} for every other type. {@code var} is treated as
+     * a non-integer; its uses are then never reported as integer arithmetic.
+     */
+    private static Interval typeRange(Type type) {
+        String name = type.isPrimitiveType() ? type.asPrimitiveType().getType().asString()
+                : type.isClassOrInterfaceType() ? type.asClassOrInterfaceType().getNameAsString() : "";
+        return switch (name) {
+            case "int", "Integer" -> Interval.INT;
+            case "long", "Long" -> Interval.UNBOUNDED;
+            case "short", "Short" -> Interval.SHORT;
+            case "byte", "Byte" -> Interval.BYTE;
+            case "char", "Character" -> Interval.CHAR;
+            default -> null;
+        };
+    }
+
+    private static boolean isStringLiteral(Expression expr) {
+        return expr.isStringLiteralExpr() || expr.isTextBlockLiteralExpr();
+    }
+
+    /**
+     * Applies the assignments, declarations and increments of one node to a state, in evaluation order.
+     */
+    private final class Transfer extends VoidVisitorAdapter<State> {
+        @Override
+        public void visit(VariableDeclarator var, State state) {
+            super.visit(var, state);
+            String name = var.getNameAsString();
+            Expression init = var.getInitializer().orElse(null);
+            if (integers.containsKey(name)) {
+                store(name, init != null ? evaluate(init, state, null) : null, state);
+            } else if (var.getType().isArrayType()) {
+                setLength(name, init != null ? arrayLength(init, state) : null, state);
+            }
+        }
+
+        @Override
+        public void visit(AssignExpr assign, State state) {
+            super.visit(assign, state);
+            if (!assign.getTarget().isNameExpr()) {
+                return;
+            }
+            String name = assign.getTarget().asNameExpr().getNameAsString();
+            if (integers.containsKey(name)) {
+                Interval value = evaluate(assign.getValue(), state, null);
+                Interval current = variable(name, state);
+                store(name, switch (assign.getOperator()) {
+                    case ASSIGN -> value;
+                    case PLUS -> apply(BinaryExpr.Operator.PLUS, current, value);
+                    case MINUS -> apply(BinaryExpr.Operator.MINUS, current, value);
+                    case MULTIPLY -> apply(BinaryExpr.Operator.MULTIPLY, current, value);
+                    case DIVIDE -> apply(BinaryExpr.Operator.DIVIDE, current, value);
+                    case REMAINDER -> apply(BinaryExpr.Operator.REMAINDER, current, value);
+                    default -> null;
+                }, state);
+            } else if (assign.getOperator() == AssignExpr.Operator.ASSIGN) {
+                setLength(name, arrayLength(assign.getValue(), state), state);
+            }
+        }
+
+        @Override
+        public void visit(UnaryExpr unary, State state) {
+            super.visit(unary, state);
+            if (!unary.getExpression().isNameExpr()) {
+                return;
+            }
+            String name = unary.getExpression().asNameExpr().getNameAsString();
+            if (!integers.containsKey(name)) {
+                return;
+            }
+            switch (unary.getOperator()) {
+                case PREFIX_INCREMENT, POSTFIX_INCREMENT ->
+                        store(name, variable(name, state).add(Interval.constant(1)), state);
+                case PREFIX_DECREMENT, POSTFIX_DECREMENT ->
+                        store(name, variable(name, state).add(Interval.constant(-1)), state);
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void visit(BinaryExpr binExpr, State state) {
+            // Left-deep chains such as generated SQL builders are unrolled rather than recursed into
+            Deque<BinaryExpr> chain = new ArrayDeque<>();
+            Expression left = binExpr;
+            while (left instanceof BinaryExpr bin) {
+                chain.push(bin);
+                left = bin.getLeft();
+            }
+            left.accept(this, state);
+            while (!chain.isEmpty()) {
+                chain.pop().getRight().accept(this, state);
+            }
+        }
+
+        @Override
+        public void visit(LambdaExpr lambda, State state) {
+            // Lambda bodies run later, if at all, and cannot assign the method's locals
+        }
+
+        private void store(String name, Interval value, State state) {
+            Interval declared = integers.get(name);
+            if (value == null || !declared.contains(value)) {
+                state.forget(name);
+            } else {
+                state.values.put(name, value);
+            }
+        }
+
+        private void setLength(String name, Interval length, State state) {
+            if (length == null) {
+                state.lengths.remove(name);
+            } else {
+                state.lengths.put(name, length);
+            }
+        }
+    }
+
+    /**
+     * Known ranges at one point; a variable without an entry may hold any value of its type.
+     */
+    private static final class State {
+        private final Map<String, Interval> values;
+        private final Map<String, Interval> lengths;
+
+        private State(Map<String, Interval> values, Map<String, Interval> lengths) {
+            this.values = values;
+            this.lengths = lengths;
+        }
+
+        private State copy() {
+            return new State(new HashMap<>(values), new HashMap<>(lengths));
+        }
+
+        private void forget(String name) {
+            values.remove(name);
+            lengths.remove(name);
+        }
+
+        private State join(State other) {
+            return new State(merge(values, other.values, false), merge(lengths, other.lengths, false));
+        }
+
+        /**
+         * Joins {@code next} into this state, widening every bound that grew.
+         */
+        private State widen(State next) {
+            return new State(merge(values, next.values, true), merge(lengths, next.lengths, true));
+        }
+
+        private static State join(State a, State b) {
+            return a == null ? b : b == null ? a : a.join(b);
+        }
+
+        private static Map<String, Interval> merge(Map<String, Interval> a, Map<String, Interval> b,
+                                                   boolean widen) {
+            Map<String, Interval> merged = new HashMap<>();
+            for (Map.Entry<String, Interval> entry : a.entrySet()) {
+                Interval other = b.get(entry.getKey());
+                if (other != null) {
+                    merged.put(entry.getKey(), widen ? entry.getValue().widen(other) : entry.getValue().join(other));
+                }
+            }
+            return merged;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof State other && values.equals(other.values) && lengths.equals(other.lengths);
+        }
+
+        @Override
+        public int hashCode() {
+            return values.hashCode() * 31 + lengths.hashCode();
+        }
+    }
+}
@@ -2,18 +2,28 @@ package me.stefan923.codescanner.output;
 
 import me.stefan923.codescanner.Vulnerability;
 
+import java.io.PrintStream;
 import java.util.List;
 
 public class ConsoleOutputStrategy implements OutputStrategy {
+    private final PrintStream out;
+
+    public ConsoleOutputStrategy() {
+        this(System.out);
+    }
+
+    public ConsoleOutputStrategy(PrintStream out) {
+        this.out = out;
+    }
 
     @Override
     public void print(List<Vulnerability> vulnerabilities) {
         if (vulnerabilities.isEmpty()) {
-            System.out.println("No vulnerabilities detected.");
+            out.println("No vulnerabilities detected.");
         } else {
-            System.out.println("Detected vulnerabilities:");
+            out.println("Detected vulnerabilities:");
             for (Vulnerability v : vulnerabilities) {
-                System.out.println(v);
+                out.println(v);
             }
         }
     }
@@ -0,0 +1,72 @@
+package me.stefan923.codescanner.output;
+
+import com.google.gson.Gson;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonWriter;
+import me.stefan923.codescanner.Vulnerability;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes one JSON object per finding and line (JSON Lines), so memory use does not grow with the number of findings.
+ */
+public class JsonLinesOutputStrategy implements OutputStrategy, StreamingOutputStrategy {
+
+    private final Gson gson = new Gson();
+    private final OutputStream out;
+    private Writer writer;
+    private JsonWriter jsonWriter;
+
+    public JsonLinesOutputStrategy() {
+        this(System.out);
+    }
+
+    public JsonLinesOutputStrategy(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void open() {
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        jsonWriter = new JsonWriter(writer);
+        // Lenient mode allows several top-level values on the same writer.
+        jsonWriter.setStrictness(Strictness.LENIENT);
+    }
+
+    @Override
+    public void emit(Vulnerability vulnerability) {
+        try {
+            // JsonWriter writes straight through to the buffered writer, so nothing is held back per finding.
+            gson.toJson(vulnerability, Vulnerability.class, jsonWriter);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        // The underlying stream is owned by the caller, so it is flushed but not closed.
+        flush();
+        writer = null;
+        jsonWriter = null;
+    }
+
+    @Override
+    public void print(List<Vulnerability> vulnerabilities) {
+        open();
+        vulnerabilities.forEach(this::emit);
+        close();
+    }
+}
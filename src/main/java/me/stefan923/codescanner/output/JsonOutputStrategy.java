@@ -4,14 +4,24 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import me.stefan923.codescanner.Vulnerability;
 
+import java.io.PrintStream;
 import java.util.List;
 
 public class JsonOutputStrategy implements OutputStrategy {
 
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final PrintStream out;
+
+    public JsonOutputStrategy() {
+        this(System.out);
+    }
+
+    public JsonOutputStrategy(PrintStream out) {
+        this.out = out;
+    }
 
     @Override
     public void print(List<Vulnerability> vulnerabilities) {
-        System.out.println(gson.toJson(vulnerabilities));
+        out.println(gson.toJson(vulnerabilities));
     }
 }
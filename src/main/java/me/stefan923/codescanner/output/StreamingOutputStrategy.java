@@ -0,0 +1,17 @@
+package me.stefan923.codescanner.output;
+
+import me.stefan923.codescanner.Vulnerability;
+
+/**
+ * Output strategy that receives findings while the scan is still running instead of as one list at the end.
+ * The scanner calls {@link #flush()} after each file so its findings become visible right away.
+ */
+public interface StreamingOutputStrategy {
+    void open();
+
+    void emit(Vulnerability vulnerability);
+
+    void flush();
+
+    void close();
+}
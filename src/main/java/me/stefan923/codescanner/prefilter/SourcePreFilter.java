@@ -0,0 +1,117 @@
+package me.stefan923.codescanner.prefilter;
+
+import com.github.javaparser.ast.expr.BinaryExpr;
+import me.stefan923.codescanner.detector.DetectorTargets;
+import me.stefan923.codescanner.detector.VulnerabilityDetector;
+import me.stefan923.codescanner.prefilter.TokenMatcher.Kind;
+import me.stefan923.codescanner.visitor.TaintTrackingVisitor;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Decides from the raw bytes of a source file, without parsing it, whether the file can produce a finding
+ * on its own. The patterns come from the detectors' {@link DetectorTargets}:
+ * <ul>
+ *     <li>any taint source makes a file relevant, since taint can reach any detector and any callee;</li>
+ *     <li>detectors that only report tainted data add nothing else;</li>
+ *     <li>the other detectors' call names, declaration names and operators make a file relevant, for
+ *     detectors that need constants only if the file also contains an integer or character literal or a
+ *     {@code MIN_VALUE} or {@code MAX_VALUE} field.</li>
+ * </ul>
+ * Findings of callees are reported in the caller's file, so a caller of a relevant file's methods is relevant
+ * as well; {@link #referencing} builds the filter the scanner uses to follow those calls.
+ * <p>
+ * Sanitizer tables are not used: a sanitizer can only remove findings.
+ */
+public final class SourcePreFilter {
+    private static final int SOURCES = 0;
+    private static final int CONSTANTS = 1;
+
+    private final TokenMatcher matcher;
+    private final BitSet sufficient;
+    private final BitSet needsConstant;
+    private final boolean matchesAll;
+
+    private SourcePreFilter(TokenMatcher matcher, BitSet sufficient, BitSet needsConstant, boolean matchesAll) {
+        this.matcher = matcher;
+        this.sufficient = sufficient;
+        this.needsConstant = needsConstant;
+        this.matchesAll = matchesAll;
+    }
+
+    public static SourcePreFilter of(Collection<? extends VulnerabilityDetector> detectors) {
+        TokenMatcher.Builder matcher = TokenMatcher.builder();
+        BitSet sufficient = new BitSet();
+        BitSet needsConstant = new BitSet();
+        boolean matchesAll = false;
+
+        sufficient.set(SOURCES);
+        TaintTrackingVisitor.SOURCES.forEach(name -> matcher.add(name, Kind.IDENTIFIER, SOURCES));
+        matcher.add("MIN_VALUE", Kind.IDENTIFIER, CONSTANTS);
+        matcher.add("MAX_VALUE", Kind.IDENTIFIER, CONSTANTS);
+        int group = CONSTANTS;
+        for (VulnerabilityDetector detector : detectors) {
+            DetectorTargets targets = detector.targets();
+            targets.getTaintSources().forEach(name -> matcher.add(name, Kind.IDENTIFIER, SOURCES));
+            if (targets.isAllNodes() || !targets.getNodeTypes().isEmpty()) {
+                // Node types have no lexical form.
+                matchesAll = true;
+                continue;
+            }
+            if (targets.requiresTaint()) {
+                continue;
+            }
+            group++;
+            (targets.requiresConstant() ? needsConstant : sufficient).set(group);
+            for (String name : targets.getCallNames()) {
+                matcher.add(name, Kind.IDENTIFIER, group);
+            }
+            for (String name : targets.getDeclarationNames()) {
+                matcher.add(name, Kind.IDENTIFIER, group);
+            }
+            for (String prefix : targets.getCallPrefixes()) {
+                matcher.add(prefix, Kind.PREFIX, group);
+            }
+            for (String prefix : targets.getDeclarationPrefixes()) {
+                matcher.add(prefix, Kind.PREFIX, group);
+            }
+            for (String substring : targets.getCallSubstrings()) {
+                matcher.add(substring, Kind.SUBSTRING, group);
+            }
+            for (BinaryExpr.Operator operator : targets.getOperators()) {
+                matcher.add(operator.asString(), Kind.OPERATOR, group);
+            }
+        }
+        return new SourcePreFilter(matcher.build(), sufficient, needsConstant, matchesAll);
+    }
+
+    /**
+     * Builds a filter accepting files that mention any of the given method names as an identifier.
+     */
+    public static SourcePreFilter referencing(Collection<String> methodNames) {
+        TokenMatcher.Builder matcher = TokenMatcher.builder();
+        boolean matchesAll = false;
+        for (String name : methodNames) {
+            if (name.chars().allMatch(c -> c < 128)) {
+                matcher.add(name, Kind.IDENTIFIER, SOURCES);
+            } else {
+                // Non-ASCII names are not matched byte-wise; accept everything instead.
+                matchesAll = true;
+            }
+        }
+        BitSet sufficient = new BitSet();
+        sufficient.set(SOURCES);
+        return new SourcePreFilter(matcher.build(), sufficient, new BitSet(), matchesAll);
+    }
+
+    public boolean accepts(ByteBuffer source) {
+        if (matchesAll) {
+            return true;
+        }
+        TokenMatcher.Matches matches = matcher.match(source);
+        return matches.groups.intersects(sufficient)
+                || (matches.literal || matches.groups.get(CONSTANTS)) && matches.groups.intersects(needsConstant);
+    }
+}
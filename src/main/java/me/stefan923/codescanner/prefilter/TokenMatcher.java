@@ -0,0 +1,280 @@
+package me.stefan923.codescanner.prefilter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton over the code of a Java source file. Comments, string, character and text block
+ * literals are skipped, so patterns only match the identifiers and operators of the code itself. Every pattern
+ * belongs to a group; a match reports the groups whose patterns occurred and whether any integer or character
+ * literal did.
+ * <p>
+ * The automaton works on ASCII bytes. Non-ASCII bytes, which in Java code can only appear inside identifiers,
+ * reset it, so patterns never match across them.
+ */
+final class TokenMatcher {
+    enum Kind {
+        /** The whole identifier must equal the pattern. */
+        IDENTIFIER,
+        /** An identifier must start with the pattern. */
+        PREFIX,
+        /** The pattern may occur anywhere in the code, including inside identifiers. */
+        SUBSTRING,
+        /**
+         * The pattern must be a whole operator token: a {@code +} that is part of {@code ++} or {@code +=}, or a
+         * {@code *} of an import on demand, does not match.
+         */
+        OPERATOR
+    }
+
+    private static final int ALPHABET = 128;
+    private static final Set<String> KEYWORDS = Set.of(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float", "for",
+            "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native", "new",
+            "package", "private", "protected", "public", "return", "short", "static", "strictfp", "super",
+            "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while"
+    );
+    private static final int MAX_KEYWORD_LENGTH = 12;
+
+    private static final int CODE = 0;
+    private static final int LINE_COMMENT = 1;
+    private static final int BLOCK_COMMENT = 2;
+    private static final int STRING = 3;
+    private static final int CHARACTER = 4;
+    private static final int TEXT_BLOCK = 5;
+
+    private final int[][] transitions;
+    private final int[][] outputs;
+    private final int[] lengths;
+    private final Kind[] kinds;
+    private final int[] groups;
+
+    private TokenMatcher(Builder builder) {
+        int patternCount = builder.patterns.size();
+        lengths = new int[patternCount];
+        kinds = new Kind[patternCount];
+        groups = new int[patternCount];
+
+        List<int[]> trie = new ArrayList<>();
+        List<int[]> output = new ArrayList<>();
+        trie.add(newState());
+        output.add(new int[0]);
+        for (int p = 0; p < patternCount; p++) {
+            String pattern = builder.patterns.get(p);
+            lengths[p] = pattern.length();
+            kinds[p] = builder.kinds.get(p);
+            groups[p] = builder.groups.get(p);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int c = pattern.charAt(i);
+                if (trie.get(state)[c] < 0) {
+                    trie.get(state)[c] = trie.size();
+                    trie.add(newState());
+                    output.add(new int[0]);
+                }
+                state = trie.get(state)[c];
+            }
+            output.set(state, append(output.get(state), p));
+        }
+
+        // Breadth-first failure links, folded into the transitions so matching is one lookup per byte.
+        transitions = trie.toArray(new int[0][]);
+        outputs = output.toArray(new int[0][]);
+        int[] failure = new int[transitions.length];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int child = transitions[0][c];
+            if (child < 0) {
+                transitions[0][c] = 0;
+            } else {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int c = 0; c < ALPHABET; c++) {
+                int child = transitions[state][c];
+                if (child < 0) {
+                    transitions[state][c] = transitions[failure[state]][c];
+                } else {
+                    failure[child] = transitions[failure[state]][c];
+                    for (int p : outputs[failure[child]]) {
+                        outputs[child] = append(outputs[child], p);
+                    }
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Scans the remaining bytes of {@code source} without changing its position.
+     */
+    Matches match(ByteBuffer source) {
+        Matches matches = new Matches();
+        int limit = source.limit();
+        int mode = CODE;
+        int state = 0;
+        for (int i = source.position(); i < limit; i++) {
+            int c = source.get(i) & 0xFF;
+            switch (mode) {
+                case CODE -> {
+                    int next = i + 1 < limit ? source.get(i + 1) & 0xFF : -1;
+                    if (c == '/' && (next == '/' || next == '*')) {
+                        mode = next == '/' ? LINE_COMMENT : BLOCK_COMMENT;
+                        state = 0;
+                        i++;
+                    } else if (c == '"') {
+                        boolean textBlock = next == '"' && i + 2 < limit && source.get(i + 2) == '"';
+                        mode = textBlock ? TEXT_BLOCK : STRING;
+                        state = 0;
+                        i += textBlock ? 2 : 0;
+                    } else if (c == '\'') {
+                        mode = CHARACTER;
+                        matches.literal = true;
+                        state = 0;
+                    } else if (c >= ALPHABET) {
+                        state = 0;
+                    } else {
+                        if (c >= '0' && c <= '9' && (i == source.position() || !isIdentifierPart(source.get(i - 1)))) {
+                            matches.literal = true;
+                        }
+                        state = transitions[state][c];
+                        for (int p : outputs[state]) {
+                            if (!matches.groups.get(groups[p]) && accepts(source, p, i)) {
+                                matches.groups.set(groups[p]);
+                            }
+                        }
+                    }
+                }
+                case LINE_COMMENT -> {
+                    if (c == '\n') {
+                        mode = CODE;
+                    }
+                }
+                case BLOCK_COMMENT -> {
+                    if (c == '*' && i + 1 < limit && source.get(i + 1) == '/') {
+                        mode = CODE;
+                        i++;
+                    }
+                }
+                case STRING, CHARACTER -> {
+                    if (c == '\\') {
+                        i++;
+                    } else if (c == (mode == STRING ? '"' : '\'') || c == '\n') {
+                        mode = CODE;
+                    }
+                }
+                default -> {
+                    if (c == '\\') {
+                        i++;
+                    } else if (c == '"' && i + 2 < limit && source.get(i + 1) == '"' && source.get(i + 2) == '"') {
+                        mode = CODE;
+                        i += 2;
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    // Checks the identifier boundaries of a match of pattern p ending at byte `end`.
+    private boolean accepts(ByteBuffer source, int p, int end) {
+        if (kinds[p] == Kind.SUBSTRING) {
+            return true;
+        }
+        if (kinds[p] == Kind.OPERATOR) {
+            return isOperatorToken(source, end - lengths[p] + 1, end);
+        }
+        int start = end - lengths[p] + 1;
+        if (start > source.position() && isIdentifierPart(source.get(start - 1))) {
+            return false;
+        }
+        int identifierEnd = end + 1;
+        while (identifierEnd < source.limit() && isIdentifierPart(source.get(identifierEnd))) {
+            identifierEnd++;
+        }
+        if (kinds[p] == Kind.IDENTIFIER) {
+            return identifierEnd == end + 1;
+        }
+        // A prefix such as "do" must not accept the keywords "do" and "double".
+        int length = identifierEnd - start;
+        if (length > MAX_KEYWORD_LENGTH) {
+            return true;
+        }
+        byte[] identifier = new byte[length];
+        source.get(start, identifier);
+        return !KEYWORDS.contains(new String(identifier, StandardCharsets.US_ASCII));
+    }
+
+    // Whether the operator at [start, end] is a token of its own, assuming the lexer takes the longest token.
+    private static boolean isOperatorToken(ByteBuffer source, int start, int end) {
+        int first = source.get(start) & 0xFF;
+        int last = source.get(end) & 0xFF;
+        int next = end + 1 < source.limit() ? source.get(end + 1) & 0xFF : -1;
+        if (next == '=' || next == last || last == '-' && next == '>') {
+            return false;
+        }
+        if (start > source.position() && source.get(start - 1) == '.') {
+            return false;
+        }
+        // In a run such as "+++" the doubled operators come first: "a+++b" is "a++ + b".
+        int run = 0;
+        for (int i = start - 1; i >= source.position() && (source.get(i) & 0xFF) == first; i--) {
+            run++;
+        }
+        return run % 2 == 0;
+    }
+
+    private static boolean isIdentifierPart(byte b) {
+        int c = b & 0xFF;
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == '$'
+                || c >= ALPHABET;
+    }
+
+    private static int[] newState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] copy = Arrays.copyOf(values, values.length + 1);
+        copy[values.length] = value;
+        return copy;
+    }
+
+    static final class Matches {
+        final BitSet groups = new BitSet();
+        boolean literal;
+    }
+
+    static final class Builder {
+        private final List<String> patterns = new ArrayList<>();
+        private final List<Kind> kinds = new ArrayList<>();
+        private final List<Integer> groups = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        Builder add(String pattern, Kind kind, int group) {
+            if (pattern.isEmpty() || !pattern.chars().allMatch(c -> c < ALPHABET)) {
+                throw new IllegalArgumentException("Patterns must be non-empty ASCII: " + pattern);
+            }
+            patterns.add(pattern);
+            kinds.add(kind);
+            groups.add(group);
+            return this;
+        }
+
+        TokenMatcher build() {
+            return new TokenMatcher(this);
+        }
+    }
+}
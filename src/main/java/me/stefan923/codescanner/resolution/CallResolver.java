@@ -0,0 +1,135 @@
+package me.stefan923.codescanner.resolution;
+
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
+import me.stefan923.codescanner.callgraph.CallGraph;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves method calls for the visitors and detectors working on one file at a time. Every call expression is
+ * resolved at most once; failures are remembered as well, so an unresolvable call only throws once. A resolver
+ * reused for another file should be {@link #clear() cleared} first.
+ * Calls indexed by the cache's {@link CallGraph} are answered from the graph instead of the symbol solver.
+ */
+public class CallResolver {
+    private final ResolutionCache cache;
+    private final Map<MethodCallExpr, ResolvedCall> calls = new IdentityHashMap<>();
+
+    CallResolver(ResolutionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Creates a resolver with a private cache, for callers that do not share resolutions between files.
+     */
+    public static CallResolver standalone() {
+        return new ResolutionCache().forFile();
+    }
+
+    /**
+     * Forgets the calls resolved so far, along with the ASTs they belong to.
+     */
+    public void clear() {
+        calls.clear();
+    }
+
+    public Optional<String> qualifiedSignature(MethodCallExpr mce) {
+        return Optional.ofNullable(lookup(mce).qualifiedSignature);
+    }
+
+    /**
+     * Whether the call resolves to a method whose package is known. Calls that cannot be resolved are
+     * treated as calls into external libraries.
+     */
+    public boolean isResolvable(MethodCallExpr mce) {
+        return lookup(mce).resolvable;
+    }
+
+    /**
+     * Returns the source declaration of the called method, if it is part of the scanned sources.
+     */
+    public Optional<MethodDeclaration> declaration(MethodCallExpr mce) {
+        ResolvedCall call = lookup(mce);
+        if (call.target != CallGraph.NOT_INDEXED) {
+            return cache.callGraph().isDeclared(call.target) ? cache.declaration(call.target) : Optional.empty();
+        }
+        if (call.method == null) {
+            return Optional.empty();
+        }
+        if (call.qualifiedSignature == null) {
+            return toAst(call.method);
+        }
+        return cache.declaration(call.qualifiedSignature, () -> toAst(call.method));
+    }
+
+    private ResolvedCall lookup(MethodCallExpr mce) {
+        ResolvedCall call = calls.get(mce);
+        if (call == null) {
+            CallGraph callGraph = cache.callGraph();
+            int target = callGraph != null ? callGraph.target(mce) : CallGraph.NOT_INDEXED;
+            call = target != CallGraph.NOT_INDEXED ? ResolvedCall.indexed(callGraph, target) : ResolvedCall.of(mce);
+            calls.put(mce, call);
+        }
+        return call;
+    }
+
+    private static Optional<MethodDeclaration> toAst(ResolvedMethodDeclaration method) {
+        try {
+            return method.toAst(MethodDeclaration.class);
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    private static final class ResolvedCall {
+        private static final ResolvedCall UNRESOLVED =
+                new ResolvedCall(null, null, false, CallGraph.NOT_INDEXED);
+
+        private final ResolvedMethodDeclaration method;
+        private final String qualifiedSignature;
+        private final boolean resolvable;
+        private final int target;
+
+        private ResolvedCall(ResolvedMethodDeclaration method, String qualifiedSignature, boolean resolvable,
+                             int target) {
+            this.method = method;
+            this.qualifiedSignature = qualifiedSignature;
+            this.resolvable = resolvable;
+            this.target = target;
+        }
+
+        static ResolvedCall indexed(CallGraph callGraph, int target) {
+            if (target == CallGraph.UNRESOLVED) {
+                return new ResolvedCall(null, null, false, target);
+            }
+            return new ResolvedCall(null, callGraph.signature(target), callGraph.isResolvable(target), target);
+        }
+
+        static ResolvedCall of(MethodCallExpr mce) {
+            ResolvedMethodDeclaration method;
+            try {
+                method = mce.resolve();
+            } catch (Exception e) {
+                return UNRESOLVED;
+            }
+            boolean resolvable;
+            try {
+                method.getPackageName();
+                resolvable = true;
+            } catch (Exception e) {
+                resolvable = false;
+            }
+            String qualifiedSignature;
+            try {
+                qualifiedSignature = method.getQualifiedSignature();
+            } catch (Exception e) {
+                qualifiedSignature = null;
+            }
+            return new ResolvedCall(method, qualifiedSignature, resolvable, CallGraph.NOT_INDEXED);
+        }
+    }
+}
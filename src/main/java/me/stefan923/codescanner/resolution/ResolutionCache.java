@@ -0,0 +1,80 @@
+package me.stefan923.codescanner.resolution;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import me.stefan923.codescanner.cache.BoundedCache;
+import me.stefan923.codescanner.callgraph.CallGraph;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the declarations that resolved method calls point to, keyed by qualified signature, so a
+ * callee's AST is looked up once no matter how many files call it. Per-file caches keyed by node identity
+ * are handed out by {@link #forFile()}.
+ * <p>
+ * With a {@link CallGraph}, call targets come from the graph and callee declarations are read from the
+ * sources returned by {@code sources}, so no symbol resolution happens at all for indexed calls.
+ * <p>
+ * The declarations belong to the type solver or parser that produced them, so a cache must only be used by
+ * the thread owning them. A bounded cache keeps the sources of at most {@code maximumUnits} callee files and
+ * a proportional number of declarations, and lets the garbage collector drop them when the heap runs low;
+ * evicted declarations are looked up again when next needed.
+ */
+public class ResolutionCache {
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+    // Declarations cached per callee source in a bounded cache
+    static final int DECLARATIONS_PER_UNIT = 8;
+
+    private final BoundedCache<String, Optional<MethodDeclaration>> declarationsBySignature;
+    private final CallGraph callGraph;
+    private final Function<Path, Optional<CompilationUnit>> sources;
+    private final BoundedCache<Path, Optional<CompilationUnit>> units;
+
+    public ResolutionCache() {
+        this(null, null, UNBOUNDED);
+    }
+
+    public ResolutionCache(int maximumUnits) {
+        this(null, null, maximumUnits);
+    }
+
+    public ResolutionCache(CallGraph callGraph, Function<Path, Optional<CompilationUnit>> sources) {
+        this(callGraph, sources, UNBOUNDED);
+    }
+
+    public ResolutionCache(CallGraph callGraph, Function<Path, Optional<CompilationUnit>> sources, int maximumUnits) {
+        this.callGraph = callGraph;
+        this.sources = sources;
+        if (maximumUnits == UNBOUNDED) {
+            this.declarationsBySignature = BoundedCache.unbounded();
+            this.units = BoundedCache.unbounded();
+        } else {
+            this.declarationsBySignature = new BoundedCache<>(maximumUnits * DECLARATIONS_PER_UNIT, true);
+            this.units = new BoundedCache<>(maximumUnits, true);
+        }
+    }
+
+    public CallResolver forFile() {
+        return new CallResolver(this);
+    }
+
+    CallGraph callGraph() {
+        return callGraph;
+    }
+
+    Optional<MethodDeclaration> declaration(String qualifiedSignature, Supplier<Optional<MethodDeclaration>> lookup) {
+        return declarationsBySignature.computeIfAbsent(qualifiedSignature, signature -> lookup.get());
+    }
+
+    Optional<MethodDeclaration> declaration(int method) {
+        return declaration(callGraph.signature(method), () -> {
+            long position = callGraph.declarationPosition(method);
+            return units.computeIfAbsent(callGraph.declaringFile(method), sources)
+                    .flatMap(cu -> cu.findFirst(MethodDeclaration.class,
+                            md -> md.getBegin().map(CallGraph::position).orElse(-1L) == position));
+        });
+    }
+}
@@ -0,0 +1,198 @@
+package me.stefan923.codescanner.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import me.stefan923.codescanner.JavaFileScanner;
+import me.stefan923.codescanner.Vulnerability;
+import me.stefan923.codescanner.cache.MemoryBudget;
+import me.stefan923.codescanner.metrics.ScanMetrics;
+import me.stefan923.codescanner.output.ConsoleOutputStrategy;
+import me.stefan923.codescanner.output.JsonLinesOutputStrategy;
+import me.stefan923.codescanner.output.JsonOutputStrategy;
+import me.stefan923.codescanner.output.OutputStrategy;
+import me.stefan923.codescanner.prefilter.SourcePreFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-lived scanner process serving scans over HTTP on the loopback interface:
+ * <pre>
+ * GET /scan?path=/abs/path/to/src&amp;format=json
+ * </pre>
+ * {@code path} defaults to the root the server was started for and {@code format} to its default output type
+ * ({@code console}, {@code json} or {@code jsonl}). The response body is what that output strategy prints for
+ * a one-shot scan; the scan summary goes to the server's standard error.
+ * <p>
+ * Each source root gets its own {@link JavaFileScanner} in incremental mode, kept for the life of the server, so
+ * repeated scans run on warm worker threads, type solvers and caches and only re-analyze files whose modification
+ * time changed. Scans of the same root are served one at a time. A memory budget and a pre-filter set before
+ * the first scan apply to the scanner of every root; each root's scanner gets the whole budget.
+ */
+public class ScanServer implements AutoCloseable {
+    private final File defaultRoot;
+    private final String defaultFormat;
+    private final int threads;
+    private MemoryBudget memoryBudget;
+    private SourcePreFilter preFilter;
+    private final Map<File, Root> roots = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+
+    public ScanServer(File defaultRoot, String defaultFormat, int threads) {
+        this.defaultRoot = defaultRoot;
+        this.defaultFormat = defaultFormat;
+        this.threads = threads;
+    }
+
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void setPreFilter(SourcePreFilter preFilter) {
+        this.preFilter = preFilter;
+    }
+
+    /**
+     * Starts listening on {@code port} of the loopback interface, or on a free port if {@code port} is 0, and
+     * returns the bound address.
+     */
+    public InetSocketAddress start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/scan", this::handleScan);
+        requestExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(requestExecutor);
+        server.start();
+        return server.getAddress();
+    }
+
+    /**
+     * Scans {@code sourceDir} once without answering anyone, so that the first request finds warm caches.
+     */
+    public void warmUp(File sourceDir) {
+        scan(sourceDir);
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            requestExecutor.shutdownNow();
+            server = null;
+        }
+        roots.values().forEach(root -> root.scanner.close());
+        roots.clear();
+    }
+
+    private void handleScan(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            File sourceDir = query.containsKey("path") ? new File(query.get("path")) : defaultRoot;
+            if (sourceDir == null || !sourceDir.isDirectory()) {
+                respond(exchange, 400, "text/plain", "Invalid source path: " + sourceDir + "\n");
+                return;
+            }
+            String format = query.getOrDefault("format", defaultFormat).toLowerCase();
+            String contentType = switch (format) {
+                case "console" -> "text/plain; charset=utf-8";
+                case "json" -> "application/json";
+                case "jsonl" -> "application/x-ndjson";
+                default -> null;
+            };
+            if (contentType == null) {
+                respond(exchange, 400, "text/plain", "Invalid output type: " + format + "\n");
+                return;
+            }
+
+            List<Vulnerability> vulnerabilities;
+            try {
+                vulnerabilities = scan(sourceDir);
+            } catch (RuntimeException e) {
+                respond(exchange, 500, "text/plain", "Scan failed: " + e.getMessage() + "\n");
+                return;
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(body, true, StandardCharsets.UTF_8);
+            createOutputStrategy(format, out).print(vulnerabilities);
+            out.flush();
+            respond(exchange, 200, contentType, body.toByteArray());
+        }
+    }
+
+    private List<Vulnerability> scan(File sourceDir) {
+        File key = sourceDir.getAbsoluteFile().toPath().normalize().toFile();
+        Root root = roots.computeIfAbsent(key, Root::new);
+        synchronized (root) {
+            root.metrics.reset();
+            root.metrics.start();
+            List<Vulnerability> vulnerabilities = root.scanner.scan();
+            root.metrics.end();
+            root.metrics.printSummary(System.err);
+            return vulnerabilities;
+        }
+    }
+
+    private static OutputStrategy createOutputStrategy(String format, PrintStream out) {
+        return switch (format) {
+            case "json" -> new JsonOutputStrategy(out);
+            case "jsonl" -> new JsonLinesOutputStrategy(out);
+            default -> new ConsoleOutputStrategy(out);
+        };
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        respond(exchange, status, contentType, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private final class Root {
+        private final ScanMetrics metrics = new ScanMetrics();
+        private final JavaFileScanner scanner;
+
+        private Root(File sourceDir) {
+            this.scanner = new JavaFileScanner(sourceDir, metrics, threads);
+            scanner.setIncremental(true);
+            if (memoryBudget != null) {
+                scanner.setMemoryBudget(memoryBudget);
+            }
+            scanner.setPreFilter(preFilter);
+        }
+    }
+}
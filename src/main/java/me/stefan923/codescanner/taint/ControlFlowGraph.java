@@ -0,0 +1,388 @@
+package me.stefan923.codescanner.taint;
+
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.stmt.*;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Statement-level control-flow graph of one method body. Every simple statement, loop or branch condition,
+ * for-loop initializer and update, switch selector, try resource and catch clause is one node; {@link #ENTRY}
+ * and {@link #EXIT} are synthetic. Expressions nested inside a node, including lambda bodies, belong to it.
+ * <p>
+ * Each branch of an {@code if} or loop condition starts with a synthetic {@link Assumption} node recording the
+ * outcome of the condition on that branch, for analyses that refine their state by it.
+ * <p>
+ * Exceptions are approximated: every node of a try block may continue into each of its catch clauses. Jumps
+ * out of a try block skip its finally block.
+ */
+public final class ControlFlowGraph {
+    public static final int ENTRY = 0;
+    public static final int EXIT = 1;
+
+    private final Node[] nodes;
+    private final Assumption[] assumptions;
+    private final int[][] successors;
+    private final Map<Node, Integer> index;
+    private final Map<Located, Integer> positions = new HashMap<>();
+
+    private ControlFlowGraph(Builder builder) {
+        this.nodes = builder.nodes.toArray(new Node[0]);
+        this.assumptions = new Assumption[nodes.length];
+        builder.assumptions.forEach((id, assumption) -> assumptions[id] = assumption);
+        this.successors = new int[nodes.length][];
+        for (int i = 0; i < nodes.length; i++) {
+            successors[i] = builder.successors.get(i).stream().mapToInt(Integer::intValue).distinct().toArray();
+        }
+        this.index = builder.index;
+        index.forEach((node, id) -> node.getRange().ifPresent(range -> positions.put(new Located(node, range), id)));
+    }
+
+    public static ControlFlowGraph build(MethodDeclaration md) {
+        Builder builder = new Builder();
+        int entry = builder.add(null, List.of());
+        int exit = builder.add(null, List.of());
+        List<Integer> exits = md.getBody()
+                .map(body -> builder.statement(body, List.of(entry)))
+                .orElse(List.of(entry));
+        builder.link(exits, exit);
+        return new ControlFlowGraph(builder);
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the AST a node stands for: a statement, an expression, a {@link CatchClause}, or {@code null} for
+     * the synthetic nodes.
+     */
+    public Node node(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Returns the condition outcome a synthetic branch node stands for, or {@code null} for other nodes.
+     */
+    public Assumption assumption(int id) {
+        return assumptions[id];
+    }
+
+    public int[] successors(int id) {
+        return successors[id];
+    }
+
+    /**
+     * Returns the node the given AST node is evaluated in, or -1 if it is outside the method body. Nodes of
+     * another parse of the same method are matched by their type and range.
+     */
+    public int nodeOf(Node astNode) {
+        for (Node current = astNode; current != null; current = current.getParentNode().orElse(null)) {
+            Integer id = index.get(current);
+            if (id != null) {
+                return id;
+            }
+            if (current instanceof MethodDeclaration) {
+                break;
+            }
+        }
+        for (Node current = astNode; current != null; current = current.getParentNode().orElse(null)) {
+            Optional<Range> range = current.getRange();
+            Integer id = range.isPresent() ? positions.get(new Located(current, range.get())) : null;
+            if (id != null) {
+                return id;
+            }
+            if (current instanceof MethodDeclaration) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Nodes reachable from {@link #ENTRY} in reverse postorder.
+     */
+    public int[] reversePostorder() {
+        int[] order = new int[nodes.length];
+        int count = 0;
+        boolean[] visited = new boolean[nodes.length];
+        int[] stack = new int[nodes.length];
+        int[] next = new int[nodes.length];
+        int depth = 0;
+        stack[depth++] = ENTRY;
+        visited[ENTRY] = true;
+        while (depth > 0) {
+            int v = stack[depth - 1];
+            if (next[v] < successors[v].length) {
+                int w = successors[v][next[v]++];
+                if (!visited[w]) {
+                    visited[w] = true;
+                    stack[depth++] = w;
+                }
+            } else {
+                depth--;
+                order[count++] = v;
+            }
+        }
+        int[] reversed = new int[count];
+        for (int i = 0; i < count; i++) {
+            reversed[i] = order[count - 1 - i];
+        }
+        return reversed;
+    }
+
+    private static final class Builder {
+        private final List<Node> nodes = new ArrayList<>();
+        private final List<List<Integer>> successors = new ArrayList<>();
+        private final Map<Node, Integer> index = new IdentityHashMap<>();
+        private final Map<Integer, Assumption> assumptions = new HashMap<>();
+        private final Deque<Jumps> jumps = new ArrayDeque<>();
+        private String pendingLabel;
+
+        private int add(Node node, List<Integer> predecessors) {
+            int id = nodes.size();
+            nodes.add(node);
+            successors.add(new ArrayList<>(2));
+            if (node != null) {
+                index.put(node, id);
+            }
+            link(predecessors, id);
+            return id;
+        }
+
+        private List<Integer> assume(int condition, Expression expression, boolean holds) {
+            int id = add(null, List.of(condition));
+            assumptions.put(id, new Assumption(expression, holds));
+            return List.of(id);
+        }
+
+        private void link(List<Integer> predecessors, int target) {
+            for (int predecessor : predecessors) {
+                successors.get(predecessor).add(target);
+            }
+        }
+
+        private List<Integer> chain(List<? extends Node> expressions, List<Integer> predecessors) {
+            for (Node expression : expressions) {
+                predecessors = List.of(add(expression, predecessors));
+            }
+            return predecessors;
+        }
+
+        private List<Integer> statements(List<Statement> statements, List<Integer> predecessors) {
+            for (Statement statement : statements) {
+                predecessors = statement(statement, predecessors);
+            }
+            return predecessors;
+        }
+
+        private List<Integer> statement(Statement statement, List<Integer> predecessors) {
+            String label = pendingLabel;
+            pendingLabel = null;
+
+            if (statement instanceof BlockStmt block) {
+                return labeled(label, () -> statements(block.getStatements(), predecessors));
+            }
+            if (statement instanceof LabeledStmt labeled) {
+                pendingLabel = labeled.getLabel().asString();
+                return statement(labeled.getStatement(), predecessors);
+            }
+            if (statement instanceof ExpressionStmt || statement instanceof AssertStmt
+                    || statement instanceof ExplicitConstructorInvocationStmt) {
+                return List.of(add(statement, predecessors));
+            }
+            if (statement instanceof IfStmt ifStmt) {
+                return labeled(label, () -> {
+                    Expression expression = ifStmt.getCondition();
+                    int condition = add(expression, predecessors);
+                    List<Integer> exits = new ArrayList<>(
+                            statement(ifStmt.getThenStmt(), assume(condition, expression, true)));
+                    List<Integer> otherwise = assume(condition, expression, false);
+                    exits.addAll(ifStmt.getElseStmt()
+                            .map(elseStmt -> statement(elseStmt, otherwise))
+                            .orElse(otherwise));
+                    return exits;
+                });
+            }
+            if (statement instanceof WhileStmt whileStmt) {
+                Expression expression = whileStmt.getCondition();
+                int condition = add(expression, predecessors);
+                Jumps loop = push(label, true, true);
+                List<Integer> body = statement(whileStmt.getBody(), assume(condition, expression, true));
+                jumps.pop();
+                link(body, condition);
+                link(loop.continues, condition);
+                return concat(assume(condition, expression, false), loop.breaks);
+            }
+            if (statement instanceof DoStmt doStmt) {
+                int start = add(null, predecessors);
+                Jumps loop = push(label, true, true);
+                List<Integer> body = statement(doStmt.getBody(), List.of(start));
+                jumps.pop();
+                Expression expression = doStmt.getCondition();
+                int condition = add(expression, concat(body, loop.continues));
+                link(assume(condition, expression, true), start);
+                return concat(assume(condition, expression, false), loop.breaks);
+            }
+            if (statement instanceof ForStmt forStmt) {
+                List<Integer> init = chain(forStmt.getInitialization(), predecessors);
+                Expression compare = forStmt.getCompare().orElse(null);
+                int head = add(compare, init);
+                Jumps loop = push(label, true, true);
+                List<Integer> entry = compare != null ? assume(head, compare, true) : List.of(head);
+                List<Integer> body = statement(forStmt.getBody(), entry);
+                jumps.pop();
+                List<Integer> update = chain(forStmt.getUpdate(), concat(body, loop.continues));
+                link(update, head);
+                List<Integer> exits = compare != null ? assume(head, compare, false) : List.of();
+                return concat(exits, loop.breaks);
+            }
+            if (statement instanceof ForEachStmt forEach) {
+                int head = add(forEach, predecessors);
+                Jumps loop = push(label, true, true);
+                List<Integer> body = statement(forEach.getBody(), List.of(head));
+                jumps.pop();
+                link(body, head);
+                link(loop.continues, head);
+                return concat(List.of(head), loop.breaks);
+            }
+            if (statement instanceof SwitchStmt switchStmt) {
+                int selector = add(switchStmt.getSelector(), predecessors);
+                Jumps block = push(label, false, true);
+                List<Integer> exits = new ArrayList<>();
+                List<Integer> fallThrough = List.of();
+                boolean hasDefault = false;
+                for (SwitchEntry entry : switchStmt.getEntries()) {
+                    hasDefault |= entry.isDefault();
+                    List<Integer> entryExits = statements(entry.getStatements(), concat(List.of(selector), fallThrough));
+                    if (entry.getType() == SwitchEntry.Type.STATEMENT_GROUP) {
+                        fallThrough = entryExits;
+                    } else {
+                        exits.addAll(entryExits);
+                    }
+                }
+                jumps.pop();
+                exits.addAll(fallThrough);
+                exits.addAll(block.breaks);
+                if (!hasDefault) {
+                    exits.add(selector);
+                }
+                return exits;
+            }
+            if (statement instanceof BreakStmt breakStmt) {
+                Jumps target = target(breakStmt.getLabel().map(l -> l.asString()).orElse(null), false);
+                if (target != null) {
+                    target.breaks.addAll(predecessors);
+                }
+                return List.of();
+            }
+            if (statement instanceof ContinueStmt continueStmt) {
+                Jumps target = target(continueStmt.getLabel().map(l -> l.asString()).orElse(null), true);
+                if (target != null) {
+                    target.continues.addAll(predecessors);
+                }
+                return List.of();
+            }
+            if (statement instanceof ReturnStmt || statement instanceof ThrowStmt) {
+                link(List.of(add(statement, predecessors)), EXIT);
+                return List.of();
+            }
+            if (statement instanceof TryStmt tryStmt) {
+                return labeled(label, () -> tryStatement(tryStmt, predecessors));
+            }
+            if (statement instanceof SynchronizedStmt synchronizedStmt) {
+                int lock = add(synchronizedStmt.getExpression(), predecessors);
+                return labeled(label, () -> statement(synchronizedStmt.getBody(), List.of(lock)));
+            }
+            if (statement instanceof LocalClassDeclarationStmt || statement instanceof LocalRecordDeclarationStmt
+                    || statement instanceof EmptyStmt) {
+                return predecessors;
+            }
+            return List.of(add(statement, predecessors));
+        }
+
+        private List<Integer> tryStatement(TryStmt tryStmt, List<Integer> predecessors) {
+            List<Integer> start = chain(tryStmt.getResources(), predecessors);
+            int firstTryNode = nodes.size();
+            List<Integer> exits = new ArrayList<>(statement(tryStmt.getTryBlock(), start));
+            // Any node of the try block may throw after it has run.
+            List<Integer> throwing = new ArrayList<>(start);
+            for (int id = firstTryNode; id < nodes.size(); id++) {
+                throwing.add(id);
+            }
+            for (CatchClause catchClause : tryStmt.getCatchClauses()) {
+                int handler = add(catchClause, throwing);
+                exits.addAll(statement(catchClause.getBody(), List.of(handler)));
+            }
+            if (tryStmt.getFinallyBlock().isPresent()) {
+                return statement(tryStmt.getFinallyBlock().get(), exits);
+            }
+            return exits;
+        }
+
+        private List<Integer> labeled(String label, Supplier<List<Integer>> body) {
+            if (label == null) {
+                return body.get();
+            }
+            Jumps block = push(label, false, false);
+            List<Integer> exits = body.get();
+            jumps.pop();
+            return concat(exits, block.breaks);
+        }
+
+        private Jumps push(String label, boolean loop, boolean breakable) {
+            Jumps target = new Jumps(label, loop, breakable);
+            jumps.push(target);
+            return target;
+        }
+
+        private Jumps target(String label, boolean continueTarget) {
+            for (Jumps target : jumps) {
+                // An unlabeled break leaves the innermost loop or switch, an unlabeled continue the innermost loop.
+                if (label != null ? label.equals(target.label) && (!continueTarget || target.loop)
+                        : continueTarget ? target.loop : target.breakable) {
+                    return target;
+                }
+            }
+            return null;
+        }
+
+        private static List<Integer> concat(List<Integer> first, List<Integer> second) {
+            List<Integer> all = new ArrayList<>(first.size() + second.size());
+            all.addAll(first);
+            all.addAll(second);
+            return all;
+        }
+    }
+
+    /**
+     * The branch of {@code condition} on which it evaluated to {@code holds}.
+     */
+    public record Assumption(Expression condition, boolean holds) {
+    }
+
+    private record Located(Class<?> type, Range range) {
+        private Located(Node node, Range range) {
+            this(node.getClass(), range);
+        }
+    }
+
+    private static final class Jumps {
+        private final String label;
+        private final boolean loop;
+        // Loops and switches; a plain labeled statement is only left by a break naming it.
+        private final boolean breakable;
+        private final List<Integer> breaks = new ArrayList<>();
+        private final List<Integer> continues = new ArrayList<>();
+
+        private Jumps(String label, boolean loop, boolean breakable) {
+            this.label = label;
+            this.loop = loop;
+            this.breakable = breakable;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package me.stefan923.codescanner.taint;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import me.stefan923.codescanner.Vulnerability;
+import me.stefan923.codescanner.cache.BoundedCache;
+import me.stefan923.codescanner.callgraph.CallGraph;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Caches the findings a method body produces for a given set of tainted parameters, so every callee is
+ * analyzed once per taint pattern instead of once per call site.
+ * <p>
+ * Parameters are identified by position in a bitmask; only the first {@value #MAX_TRACKED_PARAMETERS}
+ * parameters can carry taint. Recursive methods are solved by iterating their summary to a fixed point.
+ * Summaries computed inside a cycle that is still being solved are not cached until the cycle is done.
+ * <p>
+ * Summaries are keyed by the method's source file and declaration position rather than by its AST node, so
+ * they outlive the parsed source and apply again when it is parsed anew. Declarations without a source file
+ * are keyed by identity. A bounded cache drops the summaries of the least recently used methods beyond
+ * {@code maximumMethods}.
+ */
+public class MethodSummaries {
+    public static final int MAX_TRACKED_PARAMETERS = Long.SIZE;
+    static final int MAX_ITERATIONS = 16;
+
+    private final BoundedCache<Object, Map<Long, List<Vulnerability>>> summaries;
+    private final List<Frame> stack = new ArrayList<>();
+
+    public MethodSummaries() {
+        summaries = BoundedCache.unbounded();
+    }
+
+    public MethodSummaries(int maximumMethods) {
+        summaries = new BoundedCache<>(maximumMethods, false);
+    }
+
+    /**
+     * Returns the summary of {@code md} for the given parameter taint, computing it with {@code analysis}
+     * on a miss. {@code analysis} visits the method body and may request summaries of its own callees.
+     */
+    public List<Vulnerability> summarize(MethodDeclaration md, long taintedParameters,
+                                         Supplier<List<Vulnerability>> analysis) {
+        Object method = key(md);
+        List<Vulnerability> cached = summaries.get(method).map(summary -> summary.get(taintedParameters)).orElse(null);
+        if (cached != null) {
+            return cached;
+        }
+
+        for (int depth = 0; depth < stack.size(); depth++) {
+            Frame frame = stack.get(depth);
+            if (frame.method.equals(method) && frame.taintedParameters == taintedParameters) {
+                // Recursive call: use the current approximation and make the caller provisional.
+                frame.recursive = true;
+                Frame top = stack.get(stack.size() - 1);
+                top.lowLink = Math.min(top.lowLink, depth);
+                return frame.approximation;
+            }
+        }
+
+        int depth = stack.size();
+        Frame frame = new Frame(method, taintedParameters, depth);
+        stack.add(frame);
+        List<Vulnerability> result;
+        try {
+            int iterations = 0;
+            while (true) {
+                frame.lowLink = depth;
+                frame.recursive = false;
+                result = analysis.get();
+                if (!frame.recursive || frame.lowLink < depth || ++iterations >= MAX_ITERATIONS) {
+                    break;
+                }
+                List<Vulnerability> next = List.copyOf(new LinkedHashSet<>(result));
+                if (new HashSet<>(next).equals(new HashSet<>(frame.approximation))) {
+                    result = next;
+                    break;
+                }
+                frame.approximation = next;
+            }
+        } finally {
+            stack.remove(depth);
+        }
+
+        if (frame.lowLink < depth) {
+            Frame parent = stack.get(stack.size() - 1);
+            parent.lowLink = Math.min(parent.lowLink, frame.lowLink);
+            return result;
+        }
+        result = List.copyOf(result);
+        summaries.computeIfAbsent(method, k -> new HashMap<>()).put(taintedParameters, result);
+        return result;
+    }
+
+    public void clear() {
+        summaries.removeAll();
+    }
+
+    /**
+     * Drops the summaries of the methods matching {@code stale}, and those of methods without a source file.
+     * The callers of a stale method must match as well, since their summaries include the callee's findings.
+     */
+    public void invalidate(Predicate<MethodKey> stale) {
+        summaries.removeIf((method, summary) -> !(method instanceof MethodKey key) || stale.test(key));
+    }
+
+    private static Object key(MethodDeclaration md) {
+        return MethodKey.of(md).<Object>map(key -> key).orElseGet(() -> new Identity(md));
+    }
+
+    /**
+     * A method declared at {@code position}, as encoded by {@link CallGraph#position}, in {@code file}.
+     */
+    public record MethodKey(Path file, long position) {
+        /**
+         * Returns the key of a declaration parsed from a file, or nothing for one without a source file.
+         */
+        public static Optional<MethodKey> of(MethodDeclaration md) {
+            Optional<Path> file = md.findCompilationUnit()
+                    .flatMap(CompilationUnit::getStorage)
+                    .map(CompilationUnit.Storage::getPath);
+            if (file.isEmpty() || md.getBegin().isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(new MethodKey(file.get(), CallGraph.position(md.getBegin().get())));
+        }
+    }
+
+    private record Identity(MethodDeclaration md) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Identity identity && identity.md == md;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(md);
+        }
+    }
+
+    private static final class Frame {
+        private final Object method;
+        private final long taintedParameters;
+        private int lowLink;
+        private boolean recursive;
+        private List<Vulnerability> approximation = List.of();
+
+        private Frame(Object method, long taintedParameters, int depth) {
+            this.method = method;
+            this.taintedParameters = taintedParameters;
+            this.lowLink = depth;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package me.stefan923.codescanner.taint;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.*;
+
+import java.util.*;
+
+/**
+ * Interns the variables of one method into dense integer ids. Every declaration (local variable or parameter)
+ * gets its own id, so two variables with the same name in different scopes are kept apart. Names that are
+ * assigned without a local declaration, such as fields, get one id per name.
+ * <p>
+ * Tables are built once, by {@link #of(MethodDeclaration)} or {@link #of(Collection)}, and never change
+ * afterwards: every reference in the method is resolved up front. They can therefore be shared by several
+ * {@link TaintEnvironment}s and read from any thread without locking.
+ */
+public final class SymbolTable {
+    private final List<String> names = new ArrayList<>();
+    // For each id, the id previously bound to the same name, or -1.
+    private int[] shadowed = new int[16];
+    private final Map<Node, Integer> declarations = new IdentityHashMap<>();
+    private final Map<String, Integer> bindings = new HashMap<>();
+    private final Map<NameExpr, Integer> references = new IdentityHashMap<>();
+
+    private SymbolTable() {
+    }
+
+    /**
+     * Creates the table of a method: its parameters, then the variables declared in its body in the order the
+     * taint transfer function reaches them, then the names assigned there without a local declaration. The ids
+     * only depend on the method's source, so states computed over one parse of it apply to any other.
+     */
+    public static SymbolTable of(MethodDeclaration md) {
+        SymbolTable symbols = new SymbolTable();
+        md.getParameters().forEach(parameter -> symbols.declare(parameter, parameter.getNameAsString()));
+        md.getBody().ifPresent(body -> {
+            Scope scope = new Scope(null, true);
+            md.getParameters().forEach(scope::bindFirst);
+            Map<NameExpr, Node> resolved = resolveReferences(body, scope);
+            body.walk(Node.TreeTraversal.POSTORDER, node -> {
+                if (node instanceof Parameter parameter) {
+                    symbols.declare(parameter, parameter.getNameAsString());
+                } else if (node instanceof VariableDeclarator variable) {
+                    symbols.declare(variable, variable.getNameAsString());
+                } else if (node instanceof AssignExpr assign && assign.getTarget() instanceof NameExpr target
+                        && !resolved.containsKey(target) && symbols.lookup(target.getNameAsString()) < 0) {
+                    symbols.add(target.getNameAsString());
+                }
+            });
+            resolved.forEach((reference, declaration) -> symbols.references.put(reference, symbols.id(declaration)));
+        });
+        return symbols;
+    }
+
+    /**
+     * Creates a table of variables known only by name, one id per name.
+     */
+    public static SymbolTable of(Collection<String> names) {
+        SymbolTable symbols = new SymbolTable();
+        for (String name : names) {
+            if (symbols.lookup(name) < 0) {
+                symbols.add(name);
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * Returns the id of a declaration, or -1 if it is not part of the table.
+     */
+    public int id(Node declaration) {
+        return declarations.getOrDefault(declaration, -1);
+    }
+
+    /**
+     * Returns the id most recently bound to {@code name}, or -1.
+     */
+    public int lookup(String name) {
+        return bindings.getOrDefault(name, -1);
+    }
+
+    /**
+     * Returns the id of the variable a name expression refers to, or -1 if it is not known. References to a
+     * local declaration of the method resolve to that declaration; other names fall back to {@link #lookup}.
+     */
+    public int resolve(NameExpr reference) {
+        Integer id = references.get(reference);
+        return id != null ? id : lookup(reference.getNameAsString());
+    }
+
+    /**
+     * Returns the id that was bound to the same name before {@code id}, or -1.
+     */
+    public int shadowed(int id) {
+        return shadowed[id];
+    }
+
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    private void declare(Node declaration, String name) {
+        if (!declarations.containsKey(declaration)) {
+            declarations.put(declaration, add(name));
+        }
+    }
+
+    private int add(String name) {
+        int id = names.size();
+        names.add(name);
+        if (id == shadowed.length) {
+            shadowed = Arrays.copyOf(shadowed, id * 2);
+        }
+        Integer previous = bindings.put(name, id);
+        shadowed[id] = previous != null ? previous : -1;
+        return id;
+    }
+
+    /**
+     * Resolves every name expression under {@code root} to its local declaration in one walk, keeping the
+     * declarations visible at each point in a chain of scopes. A block's declarations become visible after the
+     * statement declaring them; those of a for loop's initialization, a try's resources, a catch clause and a
+     * lambda are visible throughout. The chain ends at a nested class or method, whose references to enclosing
+     * locals are left to {@link #lookup}.
+     */
+    private static Map<NameExpr, Node> resolveReferences(Node root, Scope outer) {
+        Map<NameExpr, Node> resolved = new IdentityHashMap<>();
+        Deque<Visit> pending = new ArrayDeque<>();
+        pending.push(new Visit(root, outer));
+        while (!pending.isEmpty()) {
+            Visit visit = pending.pop();
+            Node node = visit.node();
+            Scope scope = visit.scope();
+            if (visit.bindAfter()) {
+                // Reached once the statement itself has been walked: its variables are visible from the next one.
+                bindDeclared(((ExpressionStmt) node).getExpression(), scope, false);
+                continue;
+            }
+            if (node instanceof NameExpr reference) {
+                Node declaration = scope.find(reference.getNameAsString());
+                if (declaration != null) {
+                    resolved.put(reference, declaration);
+                }
+                continue;
+            }
+
+            boolean block = false;
+            if (node instanceof BlockStmt || node instanceof SwitchEntry) {
+                scope = new Scope(scope, false);
+                block = true;
+            } else if (node instanceof ForStmt forStmt) {
+                scope = new Scope(scope, false);
+                for (Expression init : forStmt.getInitialization()) {
+                    bindDeclared(init, scope, true);
+                }
+            } else if (node instanceof ForEachStmt forEach) {
+                Scope body = new Scope(scope, false);
+                bindDeclared(forEach.getVariable(), body, true);
+                pending.push(new Visit(forEach.getBody(), body));
+                pending.push(new Visit(forEach.getIterable(), scope));
+                continue;
+            } else if (node instanceof TryStmt tryStmt) {
+                scope = new Scope(scope, false);
+                for (Expression resource : tryStmt.getResources()) {
+                    bindDeclared(resource, scope, true);
+                }
+            } else if (node instanceof CatchClause catchClause) {
+                scope = new Scope(scope, false);
+                scope.bindFirst(catchClause.getParameter());
+            } else if (node instanceof LambdaExpr lambda) {
+                scope = new Scope(scope, false);
+                lambda.getParameters().forEach(scope::bindFirst);
+            } else if (node instanceof CallableDeclaration<?> callable) {
+                scope = new Scope(scope, true);
+                callable.getParameters().forEach(scope::bindFirst);
+            } else if (node instanceof TypeDeclaration<?>) {
+                scope = new Scope(scope, true);
+            } else if (node instanceof ObjectCreationExpr creation && creation.getAnonymousClassBody().isPresent()) {
+                Scope body = new Scope(scope, true);
+                for (Node member : creation.getAnonymousClassBody().get()) {
+                    pending.push(new Visit(member, body));
+                }
+                for (Expression argument : creation.getArguments()) {
+                    pending.push(new Visit(argument, scope));
+                }
+                creation.getScope().ifPresent(target -> pending.push(new Visit(target, visit.scope())));
+                continue;
+            }
+            List<Node> children = node.getChildNodes();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                Node child = children.get(i);
+                if (block && child instanceof ExpressionStmt) {
+                    pending.push(new Visit(child, scope, true));
+                }
+                pending.push(new Visit(child, scope, false));
+            }
+        }
+        return resolved;
+    }
+
+    private static void bindDeclared(Expression expression, Scope scope, boolean first) {
+        if (expression instanceof VariableDeclarationExpr declarationExpr) {
+            for (VariableDeclarator variable : declarationExpr.getVariables()) {
+                scope.bind(variable, variable.getNameAsString(), first);
+            }
+        }
+    }
+
+    private record Visit(Node node, Scope scope, boolean bindAfter) {
+        Visit(Node node, Scope scope) {
+            this(node, scope, false);
+        }
+    }
+
+    /**
+     * The declarations visible in one block or construct, by name. Lookups do not go past a closed scope.
+     */
+    private static final class Scope {
+        private final Scope parent;
+        private final boolean closed;
+        private final Map<String, Node> declarations = new HashMap<>();
+
+        private Scope(Scope parent, boolean closed) {
+            this.parent = parent;
+            this.closed = closed;
+        }
+
+        private Node find(String name) {
+            for (Scope scope = this; scope != null; scope = scope.parent) {
+                Node declaration = scope.declarations.get(name);
+                if (declaration != null || scope.closed) {
+                    return declaration;
+                }
+            }
+            return null;
+        }
+
+        private void bindFirst(Parameter parameter) {
+            bind(parameter, parameter.getNameAsString(), true);
+        }
+
+        private void bind(Node declaration, String name, boolean first) {
+            if (first) {
+                declarations.putIfAbsent(name, declaration);
+            } else {
+                declarations.put(name, declaration);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package me.stefan923.codescanner.taint;
+
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.NameExpr;
+
+import java.util.*;
+
+/**
+ * Taint state of the variables of one method, stored as two bitsets over the ids of a {@link SymbolTable}:
+ * whether a variable's taint is known, and whether it is tainted. Copies share the symbol table and only
+ * duplicate the bitsets.
+ * <p>
+ * References are looked up by id, through {@link SymbolTable#resolve}, with {@link #status(NameExpr)} and
+ * {@link #isTainted(NameExpr)}. Detectors written against {@code Map<String, Boolean>} can use {@link #asMap()},
+ * a read-only view keyed by variable name.
+ */
+public final class TaintEnvironment {
+    private final SymbolTable symbols;
+    private final BitSet known;
+    private final BitSet tainted;
+    private Map<String, Boolean> view;
+
+    public TaintEnvironment(SymbolTable symbols) {
+        this(symbols, new BitSet(), new BitSet());
+    }
+
+    TaintEnvironment(SymbolTable symbols, BitSet known, BitSet tainted) {
+        this.symbols = symbols;
+        this.known = known;
+        this.tainted = tainted;
+    }
+
+    /**
+     * Creates the environment a method starts with, over its {@link SymbolTable#of symbol table}: its first
+     * {@code tracked} parameters are tainted according to the bits of {@code taintedParameters}, and nothing is
+     * known about the other variables.
+     */
+    public static TaintEnvironment forParameters(MethodDeclaration md, long taintedParameters, int tracked) {
+        TaintEnvironment environment = new TaintEnvironment(SymbolTable.of(md));
+        for (int i = 0; i < tracked; i++) {
+            environment.set(environment.symbols.id(md.getParameter(i)), (taintedParameters & (1L << i)) != 0);
+        }
+        return environment;
+    }
+
+    public static TaintEnvironment fromMap(Map<String, Boolean> taintMap) {
+        TaintEnvironment environment = new TaintEnvironment(SymbolTable.of(taintMap.keySet()));
+        taintMap.forEach((name, taint) -> environment.set(environment.symbols.lookup(name), taint));
+        return environment;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public void set(int id, boolean taint) {
+        known.set(id);
+        tainted.set(id, taint);
+    }
+
+    /**
+     * Forgets the variable's taint, as after assigning it a value of unknown taint.
+     */
+    public void clear(int id) {
+        known.clear(id);
+        tainted.clear(id);
+    }
+
+    /**
+     * Returns whether the variable is tainted, or {@code null} if nothing is known about it.
+     */
+    public Boolean status(int id) {
+        return id >= 0 && known.get(id) ? tainted.get(id) : null;
+    }
+
+    public Boolean status(NameExpr reference) {
+        return status(symbols.resolve(reference));
+    }
+
+    public boolean isTainted(int id) {
+        return id >= 0 && tainted.get(id);
+    }
+
+    public boolean isTainted(NameExpr reference) {
+        return isTainted(symbols.resolve(reference));
+    }
+
+    BitSet known() {
+        return known;
+    }
+
+    BitSet tainted() {
+        return tainted;
+    }
+
+    public TaintEnvironment copy() {
+        return new TaintEnvironment(symbols, (BitSet) known.clone(), (BitSet) tainted.clone());
+    }
+
+    /**
+     * Merges the state of another path into this one: a variable is known if it is known on either path, and
+     * tainted if it is tainted on either. Returns whether this environment changed.
+     */
+    boolean join(TaintEnvironment other) {
+        boolean changed = union(known, other.known);
+        return union(tainted, other.tainted) || changed;
+    }
+
+    private static boolean union(BitSet target, BitSet bits) {
+        int before = target.cardinality();
+        target.or(bits);
+        return target.cardinality() != before;
+    }
+
+    /**
+     * Returns a read-only view keyed by variable name. A name maps to the taint of the most recent declaration
+     * with that name whose taint is known.
+     */
+    public Map<String, Boolean> asMap() {
+        if (view == null) {
+            view = new NameView();
+        }
+        return view;
+    }
+
+    private int knownBinding(String name) {
+        int id = symbols.lookup(name);
+        while (id >= 0 && !known.get(id)) {
+            id = symbols.shadowed(id);
+        }
+        return id;
+    }
+
+    private final class NameView extends AbstractMap<String, Boolean> {
+        @Override
+        public Boolean get(Object key) {
+            return key instanceof String name ? status(knownBinding(name)) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<String, Boolean>> entrySet() {
+            Map<String, Boolean> entries = new LinkedHashMap<>();
+            for (int id = known.nextSetBit(0); id >= 0; id = known.nextSetBit(id + 1)) {
+                String name = symbols.name(id);
+                if (knownBinding(name) == id) {
+                    entries.put(name, tainted.get(id));
+                }
+            }
+            return Collections.unmodifiableMap(entries).entrySet();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package me.stefan923.codescanner.taint;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Decides whether an expression carries taint. A call to a source is tainted, a call to a sanitizer is not,
+ * a literal is not, a name is tainted if the taint state says so, and anything else is tainted if one of its
+ * operands is: the scope and arguments of a call, both sides of a binary operator, and so on.
+ * <p>
+ * Expressions are walked with an explicit stack, so long {@code +} chains cannot overflow the call stack.
+ * Results are memoized per node for as long as the same environment is passed in, so the detectors sharing an
+ * evaluator and the nested operands of a chain reuse each other's work. Environments must therefore not change
+ * while in use; the states of a solved {@link TaintFlow} never do. Not thread-safe.
+ */
+public class TaintEvaluator {
+    public static final Set<String> DEFAULT_SOURCES = Set.of(
+            "getParameter", "nextLine", "readLine", "getQueryString", "getHeader", "getCookie",
+            "getPathVariable", "getRequestBody", "getRequestParam", "getQueryParam"
+    );
+    public static final Set<String> DEFAULT_SANITIZERS = Set.of("escapeHtml", "encodeForHTML", "sanitize");
+
+    private final Set<String> sources;
+    private final Set<String> sanitizers;
+    private final Map<Expression, Boolean> memo = new IdentityHashMap<>();
+    private final Deque<Expression> stack = new ArrayDeque<>();
+    private TaintEnvironment memoizedFor;
+
+    public TaintEvaluator() {
+        this(DEFAULT_SOURCES, DEFAULT_SANITIZERS);
+    }
+
+    public TaintEvaluator(Set<String> sources, Set<String> sanitizers) {
+        this.sources = Set.copyOf(sources);
+        this.sanitizers = Set.copyOf(sanitizers);
+    }
+
+    public Set<String> getSources() {
+        return sources;
+    }
+
+    public Set<String> getSanitizers() {
+        return sanitizers;
+    }
+
+    public boolean isSource(Expression expr) {
+        return expr instanceof MethodCallExpr mce && sources.contains(mce.getNameAsString());
+    }
+
+    public boolean isSanitizer(Expression expr) {
+        return expr instanceof MethodCallExpr mce && sanitizers.contains(mce.getNameAsString());
+    }
+
+    /**
+     * Forgets the memoized results, along with the expressions and environment they belong to.
+     */
+    public void clear() {
+        memo.clear();
+        memoizedFor = null;
+    }
+
+    public boolean isTainted(Expression expr, TaintEnvironment taint) {
+        if (taint != memoizedFor) {
+            memo.clear();
+            memoizedFor = taint;
+        }
+        return evaluate(expr, name -> taint.isTainted(name.asNameExpr()), memo);
+    }
+
+    /**
+     * Evaluates against an environment that may still change, such as one being updated by a transfer
+     * function. Nothing is memoized across calls.
+     */
+    public boolean isTaintedNow(Expression expr, TaintEnvironment taint) {
+        return evaluate(expr, name -> taint.isTainted(name.asNameExpr()), new IdentityHashMap<>());
+    }
+
+    private boolean evaluate(Expression root, Predicate<Expression> nameTaint, Map<Expression, Boolean> results) {
+        Boolean cached = results.get(root);
+        if (cached != null) {
+            return cached;
+        }
+        stack.clear();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Expression expr = stack.peek();
+            if (results.containsKey(expr)) {
+                stack.pop();
+                continue;
+            }
+            Boolean direct = direct(expr, nameTaint);
+            if (direct != null) {
+                results.put(expr, direct);
+                stack.pop();
+                continue;
+            }
+            // Operands first; the expression is decided once none is pending or one is tainted.
+            boolean tainted = false;
+            int pushed = 0;
+            for (Node child : expr.getChildNodes()) {
+                if (child instanceof Expression operand) {
+                    Boolean result = results.get(operand);
+                    if (result == null) {
+                        stack.push(operand);
+                        pushed++;
+                    } else if (result) {
+                        tainted = true;
+                        break;
+                    }
+                }
+            }
+            if (tainted || pushed == 0) {
+                for (int i = 0; i < pushed; i++) {
+                    stack.pop();
+                }
+                results.put(expr, tainted);
+                stack.pop();
+            }
+        }
+        return results.get(root);
+    }
+
+    private Boolean direct(Expression expr, Predicate<Expression> nameTaint) {
+        if (expr.isLiteralExpr()) {
+            return false;
+        }
+        if (expr.isNameExpr()) {
+            return nameTaint.test(expr);
+        }
+        if (expr.isMethodCallExpr()) {
+            String callName = expr.asMethodCallExpr().getNameAsString();
+            if (sanitizers.contains(callName)) {
+                return false;
+            }
+            if (sources.contains(callName)) {
+                return true;
+            }
+        }
+        return null;
+    }
+}
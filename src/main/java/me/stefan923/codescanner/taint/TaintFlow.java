@@ -0,0 +1,160 @@
+package me.stefan923.codescanner.taint;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Taint state at every point of a method, computed by forward dataflow over its {@link ControlFlowGraph}.
+ * <p>
+ * Each node's entry state is the join of its predecessors' exit states, so a variable is tainted at a point
+ * if it is tainted on some path reaching it. Nodes are taken from a worklist in reverse postorder until no
+ * state changes; the lattice is finite, and the number of node visits is additionally capped at
+ * {@link #MAX_VISITS_PER_NODE} per node.
+ * <p>
+ * A flow holds the method's AST. To keep it beyond the parse, take a {@link #snapshot()}, which only holds the
+ * bitsets, and {@link #restore} it over any later parse of the same source.
+ */
+public final class TaintFlow {
+    public static final int MAX_VISITS_PER_NODE = 32;
+
+    private final ControlFlowGraph cfg;
+    private final TaintEnvironment[] states;
+    private final TaintEnvironment exit;
+    private final TaintEnvironment unreachable;
+
+    private TaintFlow(ControlFlowGraph cfg, TaintEnvironment[] states, TaintEnvironment exit,
+                      TaintEnvironment unreachable) {
+        this.cfg = cfg;
+        this.states = states;
+        this.exit = exit;
+        this.unreachable = unreachable;
+    }
+
+    /**
+     * Returns a flow with the same state everywhere, for callers that only have flow-insensitive taint.
+     */
+    public static TaintFlow constant(TaintEnvironment taint) {
+        return new TaintFlow(null, null, taint, taint);
+    }
+
+    /**
+     * Solves the method's body. {@code transfer} applies the effect of one {@link ControlFlowGraph#node} to the
+     * state it is given; {@code entry} becomes the state at the start of the method and must not be reused.
+     */
+    public static TaintFlow solve(MethodDeclaration md, TaintEnvironment entry,
+                                  BiConsumer<Node, TaintEnvironment> transfer) {
+        ControlFlowGraph cfg = ControlFlowGraph.build(md);
+        int[] order = cfg.reversePostorder();
+        int[] rank = new int[cfg.size()];
+        for (int i = 0; i < order.length; i++) {
+            rank[order[i]] = i;
+        }
+
+        TaintEnvironment[] states = new TaintEnvironment[cfg.size()];
+        states[ControlFlowGraph.ENTRY] = entry;
+        BitSet pending = new BitSet(order.length);
+        pending.set(rank[ControlFlowGraph.ENTRY]);
+        long budget = (long) order.length * MAX_VISITS_PER_NODE;
+        for (int next = pending.nextSetBit(0); next >= 0 && budget-- > 0; next = pending.nextSetBit(0)) {
+            pending.clear(next);
+            int node = order[next];
+            TaintEnvironment out = states[node].copy();
+            if (cfg.node(node) != null) {
+                transfer.accept(cfg.node(node), out);
+            }
+            for (int successor : cfg.successors(node)) {
+                if (states[successor] == null) {
+                    states[successor] = out.copy();
+                    pending.set(rank[successor]);
+                } else if (states[successor].join(out)) {
+                    pending.set(rank[successor]);
+                }
+            }
+        }
+
+        TaintEnvironment unreachable = new TaintEnvironment(entry.getSymbols());
+        TaintEnvironment exit = states[ControlFlowGraph.EXIT];
+        if (exit == null) {
+            // The method never returns normally; summarize it by every state it reaches.
+            exit = unreachable.copy();
+            for (TaintEnvironment state : states) {
+                if (state != null) {
+                    exit.join(state);
+                }
+            }
+        }
+        return new TaintFlow(cfg, states, exit, unreachable);
+    }
+
+    /**
+     * Returns the solved states without the AST. Only flows solved from a {@link SymbolTable#of method's symbol
+     * table} can be restored.
+     */
+    public Snapshot snapshot() {
+        long[][] known = new long[states.length][];
+        long[][] tainted = new long[states.length][];
+        for (int i = 0; i < states.length; i++) {
+            if (states[i] != null) {
+                known[i] = states[i].known().toLongArray();
+                tainted[i] = states[i].tainted().toLongArray();
+            }
+        }
+        return new Snapshot(exit.getSymbols().size(), known, tainted,
+                exit.known().toLongArray(), exit.tainted().toLongArray());
+    }
+
+    /**
+     * Rebuilds a flow of {@code md} from a snapshot of the same method's flow. Returns nothing if the method's
+     * control-flow graph or symbols no longer match the snapshot, as after its source changed.
+     */
+    public static Optional<TaintFlow> restore(MethodDeclaration md, Snapshot snapshot) {
+        ControlFlowGraph cfg = ControlFlowGraph.build(md);
+        SymbolTable symbols = SymbolTable.of(md);
+        if (cfg.size() != snapshot.known.length || symbols.size() != snapshot.symbols) {
+            return Optional.empty();
+        }
+        TaintEnvironment[] states = new TaintEnvironment[cfg.size()];
+        for (int i = 0; i < states.length; i++) {
+            if (snapshot.known[i] != null) {
+                states[i] = new TaintEnvironment(symbols, BitSet.valueOf(snapshot.known[i]),
+                        BitSet.valueOf(snapshot.tainted[i]));
+            }
+        }
+        TaintEnvironment exit = new TaintEnvironment(symbols, BitSet.valueOf(snapshot.exitKnown),
+                BitSet.valueOf(snapshot.exitTainted));
+        return Optional.of(new TaintFlow(cfg, states, exit, new TaintEnvironment(symbols)));
+    }
+
+    /**
+     * Returns the state before the node of the control-flow graph that evaluates {@code node}. Nodes outside
+     * the method body see the state at its exit.
+     */
+    public TaintEnvironment at(Node node) {
+        if (cfg == null) {
+            return exit;
+        }
+        int id = cfg.nodeOf(node);
+        if (id < 0) {
+            return exit;
+        }
+        return states[id] != null ? states[id] : unreachable;
+    }
+
+    /**
+     * Returns the state at the end of the method, joined over every way of reaching it.
+     */
+    public TaintEnvironment exit() {
+        return exit;
+    }
+
+    /**
+     * The states of a solved flow as bitset words, by control-flow graph node; {@code null} for nodes that are
+     * never reached.
+     */
+    public record Snapshot(int symbols, long[][] known, long[][] tainted, long[] exitKnown, long[] exitTainted) {
+    }
+}
@@ -0,0 +1,105 @@
+package me.stefan923.codescanner.vcs;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import me.stefan923.codescanner.Vulnerability;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Keeps only the findings located in changed code: on a changed line or, at method granularity, anywhere in a
+ * method, constructor or initializer with a changed line. Findings carry the package-relative path of their
+ * file, so each changed file is matched by that exact path, read from its package declaration.
+ */
+public final class ChangedCodeFilter implements Predicate<Vulnerability> {
+    private final GitDiff diff;
+    // The changed files by package-relative path; sources in several roots may share one
+    private final Map<String, List<Path>> changedFiles;
+    // Method granularity only: the line spans of the changed declarations per changed file
+    private final Map<Path, List<int[]>> changedDeclarations;
+
+    private ChangedCodeFilter(GitDiff diff, Map<String, List<Path>> changedFiles,
+                              Map<Path, List<int[]>> changedDeclarations) {
+        this.diff = diff;
+        this.changedFiles = changedFiles;
+        this.changedDeclarations = changedDeclarations;
+    }
+
+    /**
+     * Parses every changed file once to find its package.
+     */
+    public static ChangedCodeFilter lines(GitDiff diff) {
+        return of(diff, false);
+    }
+
+    /**
+     * Parses every changed file once to find its package and the declarations its changed lines fall in.
+     */
+    public static ChangedCodeFilter methods(GitDiff diff) {
+        return of(diff, true);
+    }
+
+    private static ChangedCodeFilter of(GitDiff diff, boolean methods) {
+        JavaParser parser = new JavaParser();
+        Map<String, List<Path>> changedFiles = new HashMap<>();
+        Map<Path, List<int[]>> changedDeclarations = methods ? new HashMap<>() : null;
+        for (Path file : diff.files()) {
+            String reported = file.getFileName().toString();
+            List<int[]> spans = new ArrayList<>();
+            try {
+                Optional<CompilationUnit> parsed = parser.parse(file).getResult();
+                if (parsed.isPresent()) {
+                    CompilationUnit cu = parsed.get();
+                    reported = cu.getPackageDeclaration()
+                            .map(pkg -> pkg.getNameAsString().replace('.', '/') + "/")
+                            .orElse("") + reported;
+                    if (methods) {
+                        List<Node> declarations = new ArrayList<>(cu.findAll(CallableDeclaration.class));
+                        declarations.addAll(cu.findAll(InitializerDeclaration.class));
+                        for (Node declaration : declarations) {
+                            int begin = declaration.getBegin().map(position -> position.line).orElse(-1);
+                            int end = declaration.getEnd().map(position -> position.line).orElse(-1);
+                            if (begin > 0 && diff.touches(file, begin, end)) {
+                                spans.add(new int[]{begin, end});
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Unreadable files keep line granularity.
+            }
+            changedFiles.computeIfAbsent(reported, key -> new ArrayList<>()).add(file);
+            if (methods) {
+                changedDeclarations.put(file, spans);
+            }
+        }
+        return new ChangedCodeFilter(diff, changedFiles, changedDeclarations);
+    }
+
+    @Override
+    public boolean test(Vulnerability vulnerability) {
+        if (vulnerability.getFile() == null) {
+            return false;
+        }
+        int line = vulnerability.getLine();
+        for (Path file : changedFiles.getOrDefault(vulnerability.getFile(), List.of())) {
+            if (diff.touches(file, line, line)) {
+                return true;
+            }
+            if (changedDeclarations != null) {
+                for (int[] span : changedDeclarations.get(file)) {
+                    if (span[0] <= line && line <= span[1]) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,116 @@
+package me.stefan923.codescanner.vcs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The Java sources under a directory that differ between a base revision and the working tree, as reported
+ * by the local {@code git} executable, with the line ranges changed in each. Untracked sources count as
+ * changed in full; deleted ones are left out since there is nothing left to scan.
+ */
+public final class GitDiff {
+    private static final Pattern HUNK = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@");
+
+    // Absolute paths; a null range list means the whole file
+    private final Map<Path, List<int[]>> changedLines;
+
+    private GitDiff(Map<Path, List<int[]>> changedLines) {
+        this.changedLines = changedLines;
+    }
+
+    /**
+     * Diffs the working tree of the repository containing {@code sourceDir} against {@code baseRef}.
+     *
+     * @throws IOException if git cannot be run or fails, for instance because the ref does not exist
+     */
+    public static GitDiff against(File sourceDir, String baseRef) throws IOException {
+        Path root = sourceDir.toPath().toAbsolutePath().normalize();
+        Path topLevel = Path.of(git(root, "rev-parse", "--show-toplevel").trim());
+
+        Map<Path, List<int[]>> changedLines = new HashMap<>();
+        Path file = null;
+        for (String line : git(topLevel, "-c", "core.quotePath=false", "diff", "--no-color", "--no-ext-diff",
+                "--no-prefix", "-U0", "--diff-filter=AMR", baseRef, "--", "*.java").split("\n")) {
+            if (line.startsWith("+++ ")) {
+                file = topLevel.resolve(line.substring(4)).normalize();
+                changedLines.put(file, new ArrayList<>());
+                continue;
+            }
+            Matcher hunk = HUNK.matcher(line);
+            if (file != null && hunk.find()) {
+                int start = Integer.parseInt(hunk.group(1));
+                int count = hunk.group(2) == null ? 1 : Integer.parseInt(hunk.group(2));
+                // A hunk that only deletes lines touches the line before the deletion.
+                changedLines.get(file).add(count == 0
+                        ? new int[]{Math.max(start, 1), Math.max(start, 1)}
+                        : new int[]{start, start + count - 1});
+            }
+        }
+        for (String line : git(topLevel, "-c", "core.quotePath=false", "ls-files", "--others",
+                "--exclude-standard", "--", "*.java").split("\n")) {
+            if (!line.isEmpty()) {
+                changedLines.put(topLevel.resolve(line).normalize(), null);
+            }
+        }
+        changedLines.keySet().removeIf(path -> !path.startsWith(root));
+        return new GitDiff(changedLines);
+    }
+
+    public Set<Path> files() {
+        return Collections.unmodifiableSet(changedLines.keySet());
+    }
+
+    /**
+     * Whether any line from {@code begin} to {@code end} of {@code file} was changed.
+     */
+    public boolean touches(Path file, int begin, int end) {
+        if (!changedLines.containsKey(file)) {
+            return false;
+        }
+        List<int[]> ranges = changedLines.get(file);
+        if (ranges == null) {
+            return true;
+        }
+        for (int[] range : ranges) {
+            if (range[0] <= end && begin <= range[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String git(Path directory, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        // Stderr goes to a file so that a chatty git cannot block on a full pipe while stdout is drained.
+        Path errors = Files.createTempFile("git", ".err");
+        try {
+            Process process = new ProcessBuilder(command).directory(directory.toFile())
+                    .redirectError(errors.toFile())
+                    .start();
+            String output;
+            try (InputStream out = process.getInputStream()) {
+                output = new String(out.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("git " + String.join(" ", args) + " exited with " + exitCode + ": "
+                        + Files.readString(errors, StandardCharsets.UTF_8).trim());
+            }
+            return output;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running git", e);
+        } finally {
+            Files.deleteIfExists(errors);
+        }
+    }
+}
@@ -1,81 +1,120 @@
 package me.stefan923.codescanner.visitor;
 
-import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.expr.BinaryExpr;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import me.stefan923.codescanner.Vulnerability;
+import me.stefan923.codescanner.detector.FindingCollector;
+import me.stefan923.codescanner.detector.FindingDetector;
+import me.stefan923.codescanner.detector.FindingsSink;
 import me.stefan923.codescanner.detector.VulnerabilityDetector;
+import me.stefan923.codescanner.resolution.CallResolver;
+import me.stefan923.codescanner.taint.MethodSummaries;
+import me.stefan923.codescanner.taint.TaintEnvironment;
+import me.stefan923.codescanner.taint.TaintEvaluator;
+import me.stefan923.codescanner.taint.TaintFlow;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 
 public class DetectionVisitor extends VoidVisitorAdapter<Void> {
-    private final Map<String, Boolean> taintMap;
-    private final VulnerabilityDetector compositeDetector;
-    private final List<Vulnerability> vulnerabilities;
+    private final TaintFlow taint;
+    private final FindingDetector compositeDetector;
+    private final FindingsSink sink;
     private final MethodTaintAnalyzer methodTaintAnalyzer;
+    private final CallResolver callResolver;
+    private final MethodSummaries methodSummaries;
+    private final TaintEvaluator taintEvaluator;
 
     public DetectionVisitor(Map<String, Boolean> taintMap, VulnerabilityDetector compositeDetector,
                             List<Vulnerability> vulnerabilities, MethodTaintAnalyzer methodTaintAnalyzer) {
-        this.taintMap = taintMap;
-        this.compositeDetector = compositeDetector;
-        this.vulnerabilities = vulnerabilities;
+        this(TaintFlow.constant(TaintEnvironment.fromMap(taintMap)), compositeDetector,
+                new FindingCollector(vulnerabilities), methodTaintAnalyzer, CallResolver.standalone(),
+                new MethodSummaries(), new TaintEvaluator());
+    }
+
+    public DetectionVisitor(TaintFlow taint, VulnerabilityDetector compositeDetector, FindingsSink sink,
+                            MethodTaintAnalyzer methodTaintAnalyzer, CallResolver callResolver,
+                            MethodSummaries methodSummaries, TaintEvaluator taintEvaluator) {
+        this.taint = taint;
+        this.compositeDetector = FindingDetector.adapt(compositeDetector);
+        this.sink = sink;
         this.methodTaintAnalyzer = methodTaintAnalyzer;
+        this.callResolver = callResolver;
+        this.methodSummaries = methodSummaries;
+        this.taintEvaluator = taintEvaluator;
     }
 
     @Override
     public void visit(MethodCallExpr mce, Void arg) {
         super.visit(mce, arg);
-        vulnerabilities.addAll(compositeDetector.detect(mce, taintMap));
+        TaintEnvironment taintHere = taint.at(mce);
+        compositeDetector.detect(mce, taintHere, sink);
 
-        if (isExternalLibraryCall(mce)) {
+        if (!callResolver.isResolvable(mce)) {
             return;
         }
 
         // Propagate taint to called method if available
-        mce.resolve().toAst().ifPresent(methodDecl -> {
-            if (methodDecl instanceof MethodDeclaration calledMd) {
-                Map<String, Boolean> calledTaint = methodTaintAnalyzer.analyzeMethod(calledMd);
-                // Map arguments' taint status to parameters
-                List<Expression> args = mce.getArguments();
-                List<String> params = calledMd.getParameters().stream()
-                        .map(p -> p.getNameAsString()).toList();
-                Map<String, Boolean> paramTaint = new HashMap<>();
-                for (int i = 0; i < Math.min(args.size(), params.size()); i++) {
-                    Boolean tainted = isTainted(args.get(i));
-                    paramTaint.put(params.get(i), tainted != null ? tainted : false);
+        callResolver.declaration(mce).ifPresent(calledMd -> calledMd.getBody().ifPresent(body -> {
+            // Encode the arguments' taint status as a parameter bitmask
+            List<Expression> args = mce.getArguments();
+            int tracked = Math.min(Math.min(args.size(), calledMd.getParameters().size()),
+                    MethodSummaries.MAX_TRACKED_PARAMETERS);
+            long taintedParams = 0;
+            for (int i = 0; i < tracked; i++) {
+                if (taintEvaluator.isTainted(args.get(i), taintHere)) {
+                    taintedParams |= 1L << i;
                 }
-                // Recursively visit called method with propagated taint
-                calledMd.getBody().ifPresent(body -> {
-                    body.accept(new DetectionVisitor(paramTaint, compositeDetector, vulnerabilities, methodTaintAnalyzer), null);
-                });
             }
-        });
+            // Visit the called method once per taint pattern and reuse its findings at every call site
+            long mask = taintedParams;
+            List<Vulnerability> summary = methodSummaries.summarize(calledMd, mask, () -> {
+                TaintFlow calleeTaint = methodTaintAnalyzer.analyzeMethod(calledMd, mask, tracked);
+                List<Vulnerability> calleeVulnerabilities = new ArrayList<>();
+                FindingsSink calleeSink = new FindingCollector(calleeVulnerabilities).inFile(sourceFile(calledMd));
+                body.accept(new DetectionVisitor(calleeTaint, compositeDetector, calleeSink,
+                        methodTaintAnalyzer, callResolver, methodSummaries, taintEvaluator), null);
+                return calleeVulnerabilities;
+            });
+            for (Vulnerability vulnerability : summary) {
+                sink.report(vulnerability);
+            }
+        }));
     }
 
-    @Override
-    public void visit(BinaryExpr binExpr, Void arg) {
-        super.visit(binExpr, arg);
-        vulnerabilities.addAll(compositeDetector.detect(binExpr, taintMap));
+    /**
+     * Returns the path of the file declaring {@code node} relative to its source root, as derived from the
+     * package declaration, or {@code null} for nodes not parsed from a file.
+     */
+    static String sourceFile(Node node) {
+        return node.findCompilationUnit().flatMap(cu -> cu.getStorage().map(storage ->
+                cu.getPackageDeclaration()
+                        .map(pkg -> pkg.getNameAsString().replace('.', '/') + "/")
+                        .orElse("") + storage.getFileName()))
+                .orElse(null);
     }
 
-    private boolean isExternalLibraryCall(MethodCallExpr mce) {
-        try {
-            mce.resolve().getPackageName();
-            return false;
-        } catch (Exception e) {
-            return true;
+    @Override
+    public void visit(BinaryExpr binExpr, Void arg) {
+        // Left-deep chains such as generated SQL builders are unrolled rather than recursed into
+        Deque<BinaryExpr> chain = new ArrayDeque<>();
+        Expression left = binExpr;
+        while (left instanceof BinaryExpr bin) {
+            chain.push(bin);
+            left = bin.getLeft();
         }
-    }
-
-    private Boolean isTainted(Expression expr) {
-        if (expr.isNameExpr()) {
-            return taintMap.getOrDefault(expr.asNameExpr().getNameAsString(), false);
+        left.accept(this, arg);
+        while (!chain.isEmpty()) {
+            BinaryExpr bin = chain.pop();
+            bin.getRight().accept(this, arg);
+            bin.getComment().ifPresent(comment -> comment.accept(this, arg));
+            compositeDetector.detect(bin, taint.at(bin), sink);
         }
-        // Add more logic as needed for other expression types
-        return false;
     }
 }
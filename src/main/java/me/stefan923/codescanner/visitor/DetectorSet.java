@@ -0,0 +1,64 @@
+package me.stefan923.codescanner.visitor;
+
+import me.stefan923.codescanner.detector.DispatchingVulnerabilityDetector;
+import me.stefan923.codescanner.metrics.ScanMetrics;
+import me.stefan923.codescanner.numeric.IntervalAnalyses;
+import me.stefan923.codescanner.resolution.CallResolver;
+import me.stefan923.codescanner.taint.TaintEvaluator;
+
+/**
+ * The detectors a {@link VulnerabilityVisitor} runs, already sorted into their dispatch tables, together with the
+ * call resolver and taint evaluator they share. A set is built once per worker and reused for every file it
+ * scans; {@link #startFile()} drops what the previous file left behind, so no AST outlives its file.
+ * <p>
+ * Not thread-safe; each worker should use its own set.
+ */
+public final class DetectorSet {
+    private final CallResolver callResolver;
+    private final TaintEvaluator taintEvaluator = new TaintEvaluator();
+    private final TaintEvaluator unsanitized = VulnerabilityVisitor.unsanitized(taintEvaluator);
+    private final IntervalAnalyses ranges = new IntervalAnalyses();
+    private final DispatchingVulnerabilityDetector statementDetector;
+    private final DispatchingVulnerabilityDetector declarationDetector;
+
+    public DetectorSet(CallResolver callResolver, ScanMetrics metrics) {
+        this.callResolver = callResolver;
+        this.statementDetector = new DispatchingVulnerabilityDetector(metrics);
+        this.declarationDetector = new DispatchingVulnerabilityDetector(metrics);
+        VulnerabilityVisitor.createDetectors(callResolver, taintEvaluator, unsanitized, ranges)
+                .forEach(statementDetector::addDetector);
+        VulnerabilityVisitor.createDeclarationDetectors().forEach(declarationDetector::addDetector);
+    }
+
+    /**
+     * Forgets the resolved calls, interval analyses and memoized taint of the previous file.
+     */
+    public void startFile() {
+        callResolver.clear();
+        ranges.clear();
+        taintEvaluator.clear();
+        unsanitized.clear();
+    }
+
+    public CallResolver getCallResolver() {
+        return callResolver;
+    }
+
+    public TaintEvaluator getTaintEvaluator() {
+        return taintEvaluator;
+    }
+
+    /**
+     * Returns the detectors run on the calls and binary expressions of method bodies.
+     */
+    public DispatchingVulnerabilityDetector getStatementDetector() {
+        return statementDetector;
+    }
+
+    /**
+     * Returns the detectors run on method declarations.
+     */
+    public DispatchingVulnerabilityDetector getDeclarationDetector() {
+        return declarationDetector;
+    }
+}
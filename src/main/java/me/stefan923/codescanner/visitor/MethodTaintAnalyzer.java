@@ -2,28 +2,100 @@ package me.stefan923.codescanner.visitor;
 
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import me.stefan923.codescanner.cache.BoundedCache;
+import me.stefan923.codescanner.metrics.ScanMetrics;
+import me.stefan923.codescanner.taint.MethodSummaries;
+import me.stefan923.codescanner.taint.TaintEnvironment;
+import me.stefan923.codescanner.taint.TaintFlow;
+
+import java.nio.file.Path;
 import java.util.*;
 
+/**
+ * Computes and caches the taint flow of method bodies, solved over each method's control-flow graph with
+ * {@link TaintTrackingVisitor} as the transfer function. One analyzer is shared by all files and threads
+ * of a scan. Entries are keyed by the method's source file and declaration position and by the taint its
+ * parameters start with, so a callee solved for one call site is reused at every other site, by every thread,
+ * and over any later parse of its file. Declarations without a source file are not cached.
+ * <p>
+ * Only {@link TaintFlow.Snapshot snapshots} are cached, which hold the solved bitsets but not the AST; a hit
+ * restores them over the declaration it is given. Entries are evicted least recently used once
+ * {@code maximumSize} of them are cached, and with soft values they can also be reclaimed when the heap runs
+ * low.
+ */
 public class MethodTaintAnalyzer {
-    private final Map<String, Map<String, Boolean>> methodTaintCache = new HashMap<>();
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final BoundedCache<Key, TaintFlow.Snapshot> methodTaintCache;
+    private final ScanMetrics metrics;
 
-    public Map<String, Boolean> analyzeMethod(MethodDeclaration md) {
-        String methodSignature = md.getDeclarationAsString();
-        if (methodTaintCache.containsKey(methodSignature)) {
-            return methodTaintCache.get(methodSignature);
+    public MethodTaintAnalyzer() {
+        this(DEFAULT_MAXIMUM_SIZE, null);
+    }
+
+    public MethodTaintAnalyzer(int maximumSize, ScanMetrics metrics) {
+        this(maximumSize, false, metrics);
+    }
+
+    public MethodTaintAnalyzer(int maximumSize, boolean softValues, ScanMetrics metrics) {
+        this.methodTaintCache = new BoundedCache<>(maximumSize, softValues);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the flow of a method whose parameters start with unknown taint.
+     */
+    public TaintFlow analyzeMethod(MethodDeclaration md) {
+        return analyzeMethod(md, 0, 0);
+    }
+
+    /**
+     * Returns the flow of a method whose first {@code tracked} parameters are tainted according to the bits of
+     * {@code taintedParameters}, as in {@link TaintEnvironment#forParameters}.
+     */
+    public TaintFlow analyzeMethod(MethodDeclaration md, long taintedParameters, int tracked) {
+        Optional<Key> key = MethodSummaries.MethodKey.of(md).map(method -> new Key(method, tracked, taintedParameters));
+        Optional<TaintFlow> cached = key.flatMap(methodTaintCache::get)
+                .flatMap(snapshot -> TaintFlow.restore(md, snapshot));
+        if (cached.isPresent()) {
+            if (metrics != null) {
+                metrics.incrementTaintCacheHits();
+            }
+            return cached.get();
+        }
+        if (metrics != null) {
+            metrics.incrementTaintCacheMisses();
         }
-        Map<String, Boolean> taintMap = new HashMap<>();
-        md.getBody().ifPresent(body -> body.accept(new TaintTrackingVisitor(), taintMap));
-        methodTaintCache.put(methodSignature, taintMap);
-        return taintMap;
+        // Computed outside the lock; two threads racing on the same method produce equal flows.
+        TaintFlow flow = analyzeMethod(md, TaintEnvironment.forParameters(md, taintedParameters, tracked));
+        key.ifPresent(k -> methodTaintCache.put(k, flow.snapshot()));
+        return flow;
+    }
+
+    /**
+     * Drops the cached flows of methods declared in any of {@code files}, for files that changed since they
+     * were analyzed.
+     */
+    public void invalidate(Collection<Path> files) {
+        methodTaintCache.removeIf((key, snapshot) -> files.contains(key.method.file()));
+    }
+
+    /**
+     * Solves a method starting from the given parameter taint, without caching.
+     */
+    public TaintFlow analyzeMethod(MethodDeclaration md, TaintEnvironment entry) {
+        return TaintFlow.solve(md, entry, new TaintTrackingVisitor()::transfer);
     }
 
     public Map<String, Boolean> analyzeAllMethods(CompilationUnit cu) {
         Map<String, Boolean> globalTaint = new HashMap<>();
         cu.findAll(MethodDeclaration.class).forEach(md -> {
-            Map<String, Boolean> methodTaint = analyzeMethod(md);
+            Map<String, Boolean> methodTaint = analyzeMethod(md).exit().asMap();
             globalTaint.putAll(methodTaint);
         });
         return globalTaint;
     }
+
+    private record Key(MethodSummaries.MethodKey method, int tracked, long taintedParameters) {
+    }
 }
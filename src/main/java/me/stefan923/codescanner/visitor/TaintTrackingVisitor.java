@@ -5,86 +5,129 @@ import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.AssignExpr;
 import com.github.javaparser.ast.expr.BinaryExpr;
 import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.ForEachStmt;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import me.stefan923.codescanner.taint.TaintEnvironment;
+import me.stefan923.codescanner.taint.TaintEvaluator;
 
- import java.util.Map;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
 
 /**
  * Visitor that tracks "taint" for variables within a method.
  * A variable is considered tainted if its initializer (or assignment)
  * comes from user input (e.g., getParameter, nextLine, readLine) or a concatenation
  * that includes such input.
+ * <p>
+ * Assignments replace a variable's taint; compound assignments keep it. The visitor is the transfer function
+ * of {@link me.stefan923.codescanner.taint.TaintFlow}, applied to one control-flow graph node at a time by
+ * {@link #transfer}.
  */
-public class TaintTrackingVisitor extends VoidVisitorAdapter<Map<String, Boolean>> {
-    @Override
-    public void visit(VariableDeclarator var, Map<String, Boolean> taintMap) {
-        super.visit(var, taintMap);
-        if (var.getInitializer().isPresent()) {
-            Expression init = var.getInitializer().get();
-            Boolean taintStatus = checkExpressionTaintStatus(init, taintMap);
-            if (taintStatus != null) {
-                taintMap.put(var.getNameAsString(), taintStatus);
+public class TaintTrackingVisitor extends VoidVisitorAdapter<TaintEnvironment> {
+    public static final Set<String> SOURCES = TaintEvaluator.DEFAULT_SOURCES;
+
+    private final TaintEvaluator taintEvaluator;
+
+    public TaintTrackingVisitor() {
+        this(new TaintEvaluator());
+    }
+
+    public TaintTrackingVisitor(TaintEvaluator taintEvaluator) {
+        this.taintEvaluator = taintEvaluator;
+    }
+
+    /**
+     * Applies the effect of a {@link me.stefan923.codescanner.taint.ControlFlowGraph} node. A for-each node
+     * only evaluates its iterable and binds the loop variable, which is tainted if the iterable is; a catch
+     * clause node only declares its parameter.
+     */
+    public void transfer(Node node, TaintEnvironment taint) {
+        if (node instanceof ForEachStmt forEach) {
+            Expression iterable = forEach.getIterable();
+            iterable.accept(this, taint);
+            Boolean taintStatus = checkExpressionTaintStatus(iterable, taint);
+            for (VariableDeclarator var : forEach.getVariable().getVariables()) {
+                update(taint, taint.getSymbols().id(var), taintStatus);
             }
+        } else if (node instanceof CatchClause catchClause) {
+            catchClause.getParameter().accept(this, taint);
+        } else {
+            node.accept(this, taint);
         }
     }
 
     @Override
-    public void visit(AssignExpr assign, Map<String, Boolean> taintMap) {
-        super.visit(assign, taintMap);
+    public void visit(BinaryExpr binExpr, TaintEnvironment taint) {
+        // Unrolled like DetectionVisitor, so long concatenation chains do not recurse
+        Deque<BinaryExpr> chain = new ArrayDeque<>();
+        Expression left = binExpr;
+        while (left instanceof BinaryExpr bin) {
+            chain.push(bin);
+            left = bin.getLeft();
+        }
+        left.accept(this, taint);
+        while (!chain.isEmpty()) {
+            BinaryExpr bin = chain.pop();
+            bin.getRight().accept(this, taint);
+            bin.getComment().ifPresent(comment -> comment.accept(this, taint));
+        }
+    }
+
+    @Override
+    public void visit(VariableDeclarator var, TaintEnvironment taint) {
+        super.visit(var, taint);
+        int id = taint.getSymbols().id(var);
+        Boolean taintStatus = var.getInitializer()
+                .map(init -> checkExpressionTaintStatus(init, taint))
+                .orElse(null);
+        update(taint, id, taintStatus);
+    }
+
+    @Override
+    public void visit(AssignExpr assign, TaintEnvironment taint) {
+        super.visit(assign, taint);
         if (assign.getTarget().isNameExpr()) {
-            String varName = assign.getTarget().asNameExpr().getNameAsString();
-            Boolean taintStatus = checkExpressionTaintStatus(assign.getValue(), taintMap);
-            if (taintStatus != null) {
-                taintMap.put(varName, taintStatus);
+            int id = taint.getSymbols().resolve(assign.getTarget().asNameExpr());
+            Boolean taintStatus = checkExpressionTaintStatus(assign.getValue(), taint);
+            if (assign.getOperator() != AssignExpr.Operator.ASSIGN) {
+                // x += y keeps what x already holds
+                if (taint.isTainted(id)) {
+                    taintStatus = true;
+                } else if (taintStatus == null) {
+                    taintStatus = taint.status(id);
+                }
             }
+            update(taint, id, taintStatus);
         }
     }
 
-    private Boolean checkExpressionTaintStatus(Expression expr, Map<String, Boolean> taintMap) {
-        if (isEscaped(expr)) {
+    private static void update(TaintEnvironment taint, int id, Boolean taintStatus) {
+        if (id < 0) {
+            // Not a variable of the method's symbol table
+            return;
+        }
+        if (taintStatus != null) {
+            taint.set(id, taintStatus);
+        } else {
+            taint.clear(id);
+        }
+    }
+
+    private Boolean checkExpressionTaintStatus(Expression expr, TaintEnvironment taint) {
+        if (taintEvaluator.isSanitizer(expr)) {
             return false;
         }
 
-        if (isTainted(expr, taintMap)) {
+        if (taintEvaluator.isTaintedNow(expr, taint)) {
             return true;
         }
 
         if (expr.isNameExpr()) {
-            return taintMap.get(expr.asNameExpr().getNameAsString());
+            return taint.status(expr.asNameExpr());
         }
 
         return null;
     }
-
-    private boolean isTainted(Expression expr, Map<String, Boolean> taintMap) {
-        if (expr.isMethodCallExpr()) {
-            String callName = expr.asMethodCallExpr().getNameAsString();
-            if (callName.equals("getParameter") || callName.equals("nextLine") || callName.equals("readLine"))
-                return true;
-        }
-        if (expr.isNameExpr()) {
-            return taintMap.getOrDefault(expr.asNameExpr().getNameAsString(), false);
-        }
-        if (expr.isBinaryExpr()) {
-            BinaryExpr bin = expr.asBinaryExpr();
-            if (bin.getOperator() == BinaryExpr.Operator.PLUS) {
-                return isTainted(bin.getLeft(), taintMap) || isTainted(bin.getRight(), taintMap);
-            }
-        }
-        for (Node child : expr.getChildNodes()) {
-            if (child instanceof Expression && isTainted((Expression) child, taintMap))
-                return true;
-        }
-        return false;
-    }
-
-    private boolean isEscaped(Expression expr) {
-        if (expr.isMethodCallExpr()) {
-            String methodName = expr.asMethodCallExpr().getNameAsString();
-            return methodName.equals("escapeHtml") ||
-                    methodName.equals("encodeForHTML") ||
-                    methodName.equals("sanitize");
-        }
-        return false;
-    }
 }
@@ -4,35 +4,97 @@ import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import me.stefan923.codescanner.Vulnerability;
 import me.stefan923.codescanner.detector.*;
+import me.stefan923.codescanner.metrics.ScanMetrics;
+import me.stefan923.codescanner.numeric.IntervalAnalyses;
+import me.stefan923.codescanner.resolution.CallResolver;
+import me.stefan923.codescanner.taint.MethodSummaries;
+import me.stefan923.codescanner.taint.TaintEvaluator;
+import me.stefan923.codescanner.taint.TaintFlow;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * Implementation of VoidVisitorAdapter that processes each method declaration. For every method, it:
- * 1. Runs a taint tracking visitor to record which variables are “tainted” (i.e. come from user input).
+ * 1. Solves which variables are “tainted” (i.e. come from user input) at each point of the method.
  * 2. Visits all method calls (inside that method) and checks whether any argument is tainted.
  * 3. Checks for CSRF in HTTP handler methods.
+ * With {@link ScanMetrics}, the time spent in taint tracking, in detection and in each detector is recorded.
  */
 public class VulnerabilityVisitor extends VoidVisitorAdapter<Void> {
-    private final List<Vulnerability> vulnerabilities;
-    private final MethodTaintAnalyzer methodTaintAnalyzer = new MethodTaintAnalyzer();
-
-    private final CompositeVulnerabilityDetector statementVisitingDetector = new CompositeVulnerabilityDetector();
-    private final CompositeVulnerabilityDetector methodDeclarationVisitingDetector = new CompositeVulnerabilityDetector();
+    private final FindingCollector findings;
+    private final MethodTaintAnalyzer methodTaintAnalyzer;
+    private final MethodSummaries methodSummaries;
+    private final ScanMetrics metrics;
+    private final DetectorSet detectors;
 
     public VulnerabilityVisitor(List<Vulnerability> vulnerabilities) {
-        this.vulnerabilities = vulnerabilities;
+        this(vulnerabilities, CallResolver.standalone(), new MethodSummaries(), new MethodTaintAnalyzer());
+    }
+
+    public VulnerabilityVisitor(List<Vulnerability> vulnerabilities, CallResolver callResolver,
+                                MethodSummaries methodSummaries, MethodTaintAnalyzer methodTaintAnalyzer) {
+        this(vulnerabilities, callResolver, methodSummaries, methodTaintAnalyzer, null);
+    }
+
+    public VulnerabilityVisitor(List<Vulnerability> vulnerabilities, CallResolver callResolver,
+                                MethodSummaries methodSummaries, MethodTaintAnalyzer methodTaintAnalyzer,
+                                ScanMetrics metrics) {
+        this(vulnerabilities, new DetectorSet(callResolver, metrics), methodSummaries, methodTaintAnalyzer, metrics);
+    }
+
+    /**
+     * Creates a visitor for one file that runs a reused set of detectors, which is {@link DetectorSet#startFile()
+     * started} on the new file.
+     */
+    public VulnerabilityVisitor(List<Vulnerability> vulnerabilities, DetectorSet detectors,
+                                MethodSummaries methodSummaries, MethodTaintAnalyzer methodTaintAnalyzer,
+                                ScanMetrics metrics) {
+        this.findings = new FindingCollector(vulnerabilities);
+        this.methodTaintAnalyzer = methodTaintAnalyzer;
+        this.methodSummaries = methodSummaries;
+        this.metrics = metrics;
+        this.detectors = detectors;
+        detectors.startFile();
+    }
 
-        this.statementVisitingDetector.addDetector(new SQLiDetector());
-        this.statementVisitingDetector.addDetector(new XSSDetector());
-        this.statementVisitingDetector.addDetector(new BufferOverflowDetector());
-        this.statementVisitingDetector.addDetector(new CSRFDetector());
-        this.statementVisitingDetector.addDetector(new IntegerOverflowDetector());
-        this.statementVisitingDetector.addDetector(new IntegerUnderflowDetector());
+    /**
+     * Creates the detectors run on method declarations.
+     */
+    public static List<VulnerabilityDetector> createDeclarationDetectors() {
+        return List.of(new CSRFDetector());
+    }
+
+    /**
+     * Creates the detectors run on method bodies.
+     */
+    public static List<VulnerabilityDetector> createDetectors(CallResolver callResolver) {
+        return createDetectors(callResolver, new TaintEvaluator());
+    }
+
+    /**
+     * Creates the detectors run on method bodies, evaluating expression taint through {@code taintEvaluator}.
+     * HTML escaping does not protect SQL, so the SQL injection detector gets its own evaluator with the same
+     * sources and no sanitizers. The numeric detectors share one set of per-method interval analyses.
+     */
+    public static List<VulnerabilityDetector> createDetectors(CallResolver callResolver,
+                                                              TaintEvaluator taintEvaluator) {
+        return createDetectors(callResolver, taintEvaluator, unsanitized(taintEvaluator), new IntervalAnalyses());
+    }
+
+    static TaintEvaluator unsanitized(TaintEvaluator taintEvaluator) {
+        return new TaintEvaluator(taintEvaluator.getSources(), Set.of());
+    }
 
-        this.methodDeclarationVisitingDetector.addDetector(new CSRFDetector());
+    static List<VulnerabilityDetector> createDetectors(CallResolver callResolver, TaintEvaluator taintEvaluator,
+                                                       TaintEvaluator unsanitized, IntervalAnalyses ranges) {
+        return List.of(
+                new SQLiDetector(callResolver, unsanitized),
+                new XSSDetector(taintEvaluator),
+                new BufferOverflowDetector(ranges),
+                new IntegerOverflowDetector(taintEvaluator, ranges),
+                new IntegerUnderflowDetector(taintEvaluator, ranges)
+        );
     }
 
     @Override
@@ -40,12 +102,20 @@ public class VulnerabilityVisitor extends VoidVisitorAdapter<Void> {
         super.visit(md, arg);
 
         // Analyze taint for this method
-        Map<String, Boolean> taintMap = methodTaintAnalyzer.analyzeMethod(md);
+        long start = System.nanoTime();
+        TaintFlow taint = methodTaintAnalyzer.analyzeMethod(md);
+        long analyzed = System.nanoTime();
 
         // Propagate taint to called methods
         md.getBody().ifPresent(body -> {
-            vulnerabilities.addAll(methodDeclarationVisitingDetector.detect(md, taintMap));
-            body.accept(new DetectionVisitor(taintMap, statementVisitingDetector, vulnerabilities, methodTaintAnalyzer), null);
+            FindingsSink sink = findings.inFile(DetectionVisitor.sourceFile(md));
+            detectors.getDeclarationDetector().detect(md, taint.exit(), sink);
+            body.accept(new DetectionVisitor(taint, detectors.getStatementDetector(), sink, methodTaintAnalyzer,
+                    detectors.getCallResolver(), methodSummaries, detectors.getTaintEvaluator()), null);
         });
+        if (metrics != null) {
+            metrics.addPhaseTime(ScanMetrics.Phase.TAINT, analyzed - start);
+            metrics.addPhaseTime(ScanMetrics.Phase.DETECT, System.nanoTime() - analyzed);
+        }
     }
 }
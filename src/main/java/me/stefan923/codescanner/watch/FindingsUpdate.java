@@ -0,0 +1,24 @@
+package me.stefan923.codescanner.watch;
+
+import me.stefan923.codescanner.Vulnerability;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The difference a rescan made to the finding set of a watched tree.
+ *
+ * @param changedFiles  the changes that triggered the rescan, empty for the initial scan
+ * @param added         findings that were not reported before
+ * @param removed       findings that are no longer reported
+ * @param total         number of findings after the rescan
+ * @param filesAnalyzed number of files parsed and analyzed again
+ * @param elapsedMillis duration of the rescan
+ */
+public record FindingsUpdate(List<Path> changedFiles, List<Vulnerability> added, List<Vulnerability> removed,
+                             int total, int filesAnalyzed, long elapsedMillis) {
+
+    public boolean isInitial() {
+        return changedFiles.isEmpty();
+    }
+}
@@ -0,0 +1,171 @@
+package me.stefan923.codescanner.watch;
+
+import me.stefan923.codescanner.JavaFileScanner;
+import me.stefan923.codescanner.Vulnerability;
+import me.stefan923.codescanner.cache.MemoryBudget;
+import me.stefan923.codescanner.metrics.ScanMetrics;
+import me.stefan923.codescanner.prefilter.SourcePreFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches a source tree and publishes how its finding set changes as files are edited.
+ * <p>
+ * The tree is scanned once up front with a {@link JavaFileScanner} in incremental mode, which keeps every file's
+ * call index and findings, the workers' parsed sources and the method summaries in memory. Change events are
+ * collected until the tree has been quiet for the debounce period, so an editor's save or a branch switch
+ * causes a single rescan. The rescan analyzes only the changed files and the files calling into them; every
+ * other file's findings are taken from memory. Each rescan is published as a {@link FindingsUpdate} listing
+ * the findings that appeared and disappeared.
+ */
+public class SourceWatcher implements AutoCloseable {
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(150);
+
+    private final Path root;
+    private final Duration debounce;
+    private final Consumer<FindingsUpdate> listener;
+    private final ScanMetrics metrics = new ScanMetrics();
+    private final JavaFileScanner scanner;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    // Current findings by fingerprint, in report order
+    private Map<String, Vulnerability> findings = new LinkedHashMap<>();
+
+    public SourceWatcher(File sourceDir, int threads, Duration debounce, Consumer<FindingsUpdate> listener)
+            throws IOException {
+        this.root = sourceDir.toPath();
+        this.debounce = debounce;
+        this.listener = listener;
+        this.scanner = new JavaFileScanner(sourceDir, metrics, threads);
+        scanner.setIncremental(true);
+        this.watchService = root.getFileSystem().newWatchService();
+        registerAll(root);
+    }
+
+    /**
+     * Bounds what the scanner caches; must be called before {@link #run()}.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        scanner.setMemoryBudget(memoryBudget);
+    }
+
+    /**
+     * Skips files that cannot produce findings; must be called before {@link #run()}.
+     */
+    public void setPreFilter(SourcePreFilter preFilter) {
+        scanner.setPreFilter(preFilter);
+    }
+
+    /**
+     * Publishes the initial scan, then a rescan after every burst of changes, until the thread is interrupted
+     * or the watcher is closed.
+     */
+    public void run() {
+        listener.accept(rescan(List.of()));
+        while (true) {
+            Set<Path> changed = new LinkedHashSet<>();
+            try {
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    collect(key, changed);
+                    key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            if (!changed.isEmpty()) {
+                listener.accept(rescan(List.copyOf(changed)));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // Nothing is left to clean up.
+        }
+        scanner.close();
+    }
+
+    private FindingsUpdate rescan(List<Path> changedFiles) {
+        metrics.reset();
+        metrics.start();
+        Map<String, Vulnerability> next = new LinkedHashMap<>();
+        for (Vulnerability vulnerability : scanner.scan()) {
+            next.put(vulnerability.getFingerprint(), vulnerability);
+        }
+        metrics.end();
+
+        List<Vulnerability> added = new ArrayList<>();
+        next.forEach((fingerprint, vulnerability) -> {
+            if (!findings.containsKey(fingerprint)) {
+                added.add(vulnerability);
+            }
+        });
+        List<Vulnerability> removed = new ArrayList<>();
+        findings.forEach((fingerprint, vulnerability) -> {
+            if (!next.containsKey(fingerprint)) {
+                removed.add(vulnerability);
+            }
+        });
+        findings = next;
+        return new FindingsUpdate(changedFiles, added, removed, next.size(), metrics.getFilesAnalyzed(),
+                metrics.getElapsedTimeMillis());
+    }
+
+    /**
+     * Adds the Java sources and directories named by the key's events to {@code changed}, and starts watching
+     * directories that were created.
+     */
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path dir = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events were lost; the rescan compares every file against its last state anyway.
+                changed.add(root);
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    registerAll(path);
+                } catch (IOException e) {
+                    System.err.println("Could not watch " + path + ": " + e.getMessage());
+                }
+                changed.add(path);
+            } else if (path.toString().endsWith(".java") || directories.containsValue(path)) {
+                changed.add(path);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void registerAll(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                directories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package me.stefan923.codescanner.watch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import me.stefan923.codescanner.Vulnerability;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Prints each {@link FindingsUpdate} as it is published, either as text for a terminal or as one JSON object
+ * per line for tools following the output.
+ */
+public abstract class UpdatePrinter implements Consumer<FindingsUpdate> {
+    protected final PrintStream out;
+
+    protected UpdatePrinter(PrintStream out) {
+        this.out = out;
+    }
+
+    public static UpdatePrinter console(PrintStream out) {
+        return new UpdatePrinter(out) {
+            @Override
+            public void accept(FindingsUpdate update) {
+                if (update.isInitial()) {
+                    out.println("Initial scan: " + update.total() + " vulnerabilities, " + update.filesAnalyzed()
+                            + " files analyzed in " + update.elapsedMillis() + " ms");
+                } else {
+                    out.println(describe(update.changedFiles()) + " changed: " + update.filesAnalyzed()
+                            + " files analyzed in " + update.elapsedMillis() + " ms, " + update.added().size()
+                            + " new, " + update.removed().size() + " resolved, " + update.total() + " total");
+                }
+                update.added().forEach(vulnerability -> out.println("+ " + vulnerability));
+                update.removed().forEach(vulnerability -> out.println("- " + vulnerability));
+                out.flush();
+            }
+        };
+    }
+
+    public static UpdatePrinter jsonLines(PrintStream out) {
+        Gson gson = new Gson();
+        return new UpdatePrinter(out) {
+            @Override
+            public void accept(FindingsUpdate update) {
+                JsonObject json = new JsonObject();
+                JsonArray changedFiles = new JsonArray();
+                update.changedFiles().forEach(path -> changedFiles.add(path.toString()));
+                json.add("changedFiles", changedFiles);
+                json.add("added", gson.toJsonTree(update.added()));
+                json.add("removed", gson.toJsonTree(update.removed()));
+                json.addProperty("total", update.total());
+                json.addProperty("filesAnalyzed", update.filesAnalyzed());
+                json.addProperty("elapsedMillis", update.elapsedMillis());
+                out.println(gson.toJson(json));
+                out.flush();
+            }
+        };
+    }
+
+    private static String describe(List<Path> changedFiles) {
+        String first = String.valueOf(changedFiles.get(0).getFileName());
+        return changedFiles.size() == 1 ? first : first + " and " + (changedFiles.size() - 1) + " more";
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.*;
+
+public class UserProfileDto {
+    private String name;
+    private String email;
+    private List<String> roles = new ArrayList<>();
+    private Map<String, String> attributes = new HashMap<>();
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(List<String> roles) {
+        this.roles = new ArrayList<>(roles);
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(Map<String, String> attributes) {
+        this.attributes = new HashMap<>(attributes);
+    }
+
+    public int getRoleCount() {
+        int count = roles.size();
+        for (String ignored : attributes.keySet()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "UserProfileDto{name=" + name + ", email=" + email + ", roles=" + roles + "}";
+    }
+}